@@ -0,0 +1,97 @@
+package zelda.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import zelda.CollisionMap;
+import zelda.OverworldRenderer;
+import zelda.TileType;
+
+/**
+ * Collision lookups as the game does them every frame, plus the one-off grid
+ * generation that happens the first time a room is touched.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    private static final int POINTS = 1024;
+    
+    private OverworldRenderer renderer;
+    private CollisionMap collisionMap;
+    private CollisionMap pixelMap;
+    
+    private final int[] roomX = new int[POINTS];
+    private final int[] roomY = new int[POINTS];
+    private final int[] pixelX = new int[POINTS];
+    private final int[] pixelY = new int[POINTS];
+    private int room = 0;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        renderer = new OverworldRenderer();
+        collisionMap = new CollisionMap();
+        collisionMap.setRenderer(renderer);
+        pixelMap = new CollisionMap();
+        pixelMap.setRenderer(renderer);
+        pixelMap.setPixelPrecise(true);
+        
+        java.util.Random random = new java.util.Random(7);
+        for (int i = 0; i < POINTS; i++) {
+            roomX[i] = random.nextInt(16);
+            roomY[i] = random.nextInt(8);
+            pixelX[i] = random.nextInt(256);
+            pixelY[i] = random.nextInt(176);
+        }
+        
+        // Generate every grid up front so the lookups measure steady state
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 8; y++) {
+                collisionMap.getTileType(x, y, 0, 0);
+                pixelMap.isAreaWalkable(CollisionMap.OVERWORLD, x, y, 0, 0, 1, 1);
+            }
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void isWalkable(Blackhole bh) {
+        for (int i = 0; i < POINTS; i++) {
+            bh.consume(collisionMap.isWalkable(roomX[i], roomY[i], pixelX[i], pixelY[i]));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void getTileType(Blackhole bh) {
+        for (int i = 0; i < POINTS; i++) {
+            TileType t = collisionMap.getTileType(roomX[i], roomY[i], pixelX[i] / 16, pixelY[i] / 16);
+            bh.consume(t);
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void isAreaWalkable(Blackhole bh) {
+        for (int i = 0; i < POINTS; i++) {
+            bh.consume(collisionMap.isAreaWalkable(CollisionMap.OVERWORLD, roomX[i], roomY[i], pixelX[i], pixelY[i], 24, 32));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void isAreaWalkablePixel(Blackhole bh) {
+        for (int i = 0; i < POINTS; i++) {
+            bh.consume(pixelMap.isAreaWalkable(CollisionMap.OVERWORLD, roomX[i], roomY[i], pixelX[i], pixelY[i], 24, 32));
+        }
+    }
+    
+    @Benchmark
+    public int[][] generateCollisionGrid() {
+        room = (room + 1) % 128;
+        return renderer.generateCollisionGrid(room % 16, room / 16);
+    }
+}
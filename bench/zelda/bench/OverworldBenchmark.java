@@ -0,0 +1,49 @@
+package zelda.bench;
+
+import engine.KeyHandler;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import zelda.CombatManager;
+import zelda.Overworld;
+import zelda.ZeldaPlayer;
+import zelda.ZeldaRoom;
+
+/**
+ * One screen transition: entering the next room of a loop of neighbouring
+ * rooms, which packs the room left into a DormantRoom and builds the new
+ * one from its own. Every room in the loop has been played once, so each
+ * has enemies to pack and restore.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverworldBenchmark {
+    private static final int[] LOOP_X = { 7, 8, 8, 7 };
+    private static final int[] LOOP_Y = { 7, 7, 6, 6 };
+    
+    private Overworld overworld;
+    private int step = 0;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        overworld = new Overworld();
+        overworld.initialize();
+        
+        ZeldaPlayer farPlayer = new ZeldaPlayer(-100, -100, new KeyHandler());
+        CombatManager combat = new CombatManager();
+        for (int i = 0; i < LOOP_X.length; i++) {
+            overworld.setCurrentRoom(LOOP_X[i], LOOP_Y[i]);
+            overworld.getCurrentRoom().update(farPlayer, combat, null);
+        }
+    }
+    
+    @Benchmark
+    public ZeldaRoom enterRoom() {
+        step = (step + 1) % LOOP_X.length;
+        overworld.setCurrentRoom(LOOP_X[step], LOOP_Y[step]);
+        return overworld.getCurrentRoom();
+    }
+}
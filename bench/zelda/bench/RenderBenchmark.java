@@ -0,0 +1,227 @@
+package zelda.bench;
+
+import engine.KeyHandler;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import zelda.AudioManager;
+import zelda.CombatManager;
+import zelda.OverworldRenderer;
+import zelda.RenderState;
+import zelda.SaveManager;
+import zelda.ZeldaGame;
+import zelda.ZeldaHUD;
+import zelda.ZeldaPlayer;
+import zelda.ZeldaRoom;
+import zelda.enemies.Moblin;
+import zelda.enemies.Octorok;
+
+/**
+ * Java2D draw paths rendered into an offscreen image, one frame per call.
+ * Meant to be run headless with -prof gc so allocation per frame is reported
+ * alongside ns/frame (ant bench-render does both).
+ *
+ * COMPATIBLE uses the screen's preferred format and falls back to INT_RGB
+ * when there is no screen.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    private static final int WIDTH = 256;
+    private static final int HEIGHT = 240;
+    private static final int ENEMIES = 16;
+    
+    @Param({"INT_RGB", "INT_ARGB_PRE", "COMPATIBLE"})
+    public String imageType;
+    
+    private BufferedImage target;
+    private File saveDir;
+    
+    private OverworldRenderer overworldRenderer;
+    private ZeldaHUD hud;
+    private ZeldaGame game;
+    
+    private final RenderState hudState = new RenderState();
+    private final RenderState spriteState = new RenderState();
+    private final RenderState titleState = new RenderState();
+    private final RenderState playingState = new RenderState();
+    private final RenderState pausedState = new RenderState();
+    
+    private int room = 0;
+    private int coldRoom = 0;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        target = createTarget(imageType);
+        
+        overworldRenderer = new OverworldRenderer();
+        
+        ZeldaPlayer player = new ZeldaPlayer(120, 88, new KeyHandler());
+        hud = new ZeldaHUD();
+        hud.setPlayer(player);
+        hudState.clear();
+        hudState.hasRoom = true;
+        hudState.roomX = 7;
+        hudState.roomY = 7;
+        hud.snapshot(hudState);
+        
+        // Let the enemies wander for a while so they face different ways
+        ZeldaRoom enemyRoom = new ZeldaRoom(6, 6);
+        for (int i = 0; i < ENEMIES; i++) {
+            int x = 24 + (i % 8) * 26;
+            int y = 32 + (i / 8) * 64;
+            enemyRoom.getEnemies().add(i % 2 == 0 ? new Octorok(x, y, i % 4 == 0) : new Moblin(x, y, i % 4 == 1));
+        }
+        ZeldaPlayer farPlayer = new ZeldaPlayer(-100, -100, new KeyHandler());
+        CombatManager combat = new CombatManager();
+        for (int i = 0; i < 120; i++) {
+            enemyRoom.update(farPlayer, combat, null);
+        }
+        spriteState.clear();
+        enemyRoom.snapshot(spriteState);
+        
+        saveDir = Files.createTempDirectory("zelda-bench").toFile();
+        AudioManager audio = new AudioManager();
+        audio.setMusicEnabled(false);
+        audio.setSFXEnabled(false);
+        game = new ZeldaGame(new KeyHandler(), new SaveManager(saveDir.getPath()), audio);
+        
+        game.snapshot(titleState);
+        game.startNewGame("BENCH", 0);
+        game.snapshot(playingState);
+        game.setState(ZeldaGame.GameState.PAUSED);
+        game.snapshot(pausedState);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File f : saveDir.listFiles()) f.delete();
+        saveDir.delete();
+    }
+    
+    static BufferedImage createTarget(String type) {
+        switch (type) {
+            case "INT_RGB":
+                return new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            case "INT_ARGB_PRE":
+                return new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+            case "COMPATIBLE":
+                if (!GraphicsEnvironment.isHeadless()) {
+                    return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                        .getDefaultConfiguration().createCompatibleImage(WIDTH, HEIGHT, Transparency.OPAQUE);
+                }
+                return new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            default:
+                throw new IllegalArgumentException("Unknown image type: " + type);
+        }
+    }
+    
+    private Graphics2D begin() {
+        Graphics2D g2 = target.createGraphics();
+        g2.setColor(Color.BLACK);
+        g2.fillRect(0, 0, WIDTH, HEIGHT);
+        return g2;
+    }
+    
+    /**
+     * Cycles through as many rooms as the renderer caches, so after warmup
+     * every call is a cache hit: the cost of a frame in a room already seen
+     */
+    @Benchmark
+    public BufferedImage overworldRoom() {
+        room = (room + 1) % OverworldRenderer.ROOM_CACHE_SIZE;
+        return drawRoom(room);
+    }
+    
+    /**
+     * Cycles through all 128 rooms, more than the caches hold, so every call
+     * decodes and composes its room: the cost of a room not prefetched
+     */
+    @Benchmark
+    public BufferedImage overworldRoomUncached() {
+        coldRoom = (coldRoom + 1) % 128;
+        return drawRoom(coldRoom);
+    }
+    
+    private BufferedImage drawRoom(int index) {
+        Graphics2D g2 = begin();
+        try {
+            g2.translate(0, 56);
+            overworldRenderer.renderRoom(g2, index % 16, index / 16);
+        } finally {
+            g2.dispose();
+        }
+        return target;
+    }
+    
+    @Benchmark
+    public BufferedImage hud() {
+        Graphics2D g2 = begin();
+        try {
+            hud.render(g2, hudState, true);
+        } finally {
+            g2.dispose();
+        }
+        return target;
+    }
+    
+    @Benchmark
+    public BufferedImage titleScreen() {
+        Graphics2D g2 = begin();
+        try {
+            game.render(g2, titleState);
+        } finally {
+            g2.dispose();
+        }
+        return target;
+    }
+    
+    @Benchmark
+    public BufferedImage enemySprites() {
+        Graphics2D g2 = begin();
+        try {
+            g2.translate(0, 56);
+            spriteState.renderSprites(g2, 0.5f);
+        } finally {
+            g2.dispose();
+        }
+        return target;
+    }
+    
+    @Benchmark
+    public BufferedImage playingFrame() {
+        Graphics2D g2 = begin();
+        try {
+            game.render(g2, playingState, 0.5f);
+        } finally {
+            g2.dispose();
+        }
+        return target;
+    }
+    
+    /**
+     * Same frame as playingFrame with the pause overlay on top; the
+     * difference between the two is the overlay's cost
+     */
+    @Benchmark
+    public BufferedImage pausedFrame() {
+        Graphics2D g2 = begin();
+        try {
+            game.render(g2, pausedState, 1f);
+        } finally {
+            g2.dispose();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,83 @@
+package zelda.bench;
+
+import engine.KeyHandler;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import zelda.CombatManager;
+import zelda.ProjectileBuffer;
+import zelda.ZeldaEnemy;
+import zelda.ZeldaPlayer;
+import zelda.ZeldaRoom;
+import zelda.enemies.Moblin;
+import zelda.enemies.Octorok;
+import zelda.enemies.Tektite;
+
+/**
+ * One ZeldaRoom.update tick with a given number of enemies and projectiles.
+ * Projectiles expire and enemies get shot, so the room is topped back up
+ * before each tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomUpdateBenchmark {
+    @Param({"3", "16", "64", "256"})
+    public int enemyCount;
+    
+    @Param({"0", "32", "256", "2048"})
+    public int projectileCount;
+    
+    private ZeldaRoom room;
+    private ZeldaPlayer player;
+    private CombatManager combat;
+    private Random random;
+    private int spawned;
+    
+    @Setup(Level.Iteration)
+    public void setUp() {
+        random = new Random(42);
+        player = new ZeldaPlayer(120, 88, new KeyHandler());
+        combat = new CombatManager();
+        
+        room = new ZeldaRoom(6, 6);
+        spawned = 0;
+        topUpEnemies();
+    }
+    
+    // Player shots kill enemies, so they are topped up like the projectiles
+    private void topUpEnemies() {
+        while (room.getEnemies().size() < enemyCount) {
+            int x = 24 + random.nextInt(200);
+            int y = 24 + random.nextInt(120);
+            ZeldaEnemy enemy;
+            switch (spawned++ % 3) {
+                case 0: enemy = new Octorok(x, y, random.nextBoolean()); break;
+                case 1: enemy = new Moblin(x, y, random.nextBoolean()); break;
+                default: enemy = new Tektite(x, y, random.nextBoolean()); break;
+            }
+            room.getEnemies().add(enemy);
+        }
+    }
+    
+    @Benchmark
+    public ZeldaRoom update() {
+        topUpEnemies();
+        
+        ProjectileBuffer projectiles = room.getProjectiles();
+        while (projectiles.size() < projectileCount) {
+            double angle = random.nextDouble() * Math.PI * 2;
+            boolean playerOwned = random.nextBoolean();
+            projectiles.emit(random.nextInt(256), random.nextInt(176),
+                Math.cos(angle) * 1.5, Math.sin(angle) * 1.5, playerOwned,
+                playerOwned ? ProjectileBuffer.STYLE_PLAYER_SHOT : ProjectileBuffer.STYLE_ENEMY_SHOT);
+        }
+        
+        player.setHealth(player.getMaxHealth());
+        room.update(player, combat, null);
+        return room;
+    }
+}
@@ -0,0 +1,46 @@
+package zelda.bench;
+
+import engine.KeyHandler;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import zelda.SaveManager;
+import zelda.ZeldaPlayer;
+
+/**
+ * Save followed by load of the same slot, against a scratch directory
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveManagerBenchmark {
+    private File saveDir;
+    private SaveManager saveManager;
+    private ZeldaPlayer player;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        saveDir = Files.createTempDirectory("zelda-bench").toFile();
+        saveManager = new SaveManager(saveDir.getPath());
+        player = new ZeldaPlayer(120, 88, new KeyHandler());
+        player.setName("BENCH");
+        player.setRupees(42);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File f : saveDir.listFiles()) f.delete();
+        saveDir.delete();
+    }
+    
+    @Benchmark
+    public SaveManager.SaveData saveLoadRoundTrip() {
+        saveManager.saveGame(0, player, 7, 7);
+        return saveManager.loadGame(0);
+    }
+}
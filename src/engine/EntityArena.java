@@ -0,0 +1,169 @@
+package engine;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * Entities of one kind in a dense array, with generational handles. Each
+ * entity sits in a slot; its handle packs the slot with the slot's
+ * generation, which changes when the entity is removed, so a handle kept
+ * past its entity's removal resolves to null instead of to whatever reused
+ * the slot.
+ *
+ * Removal is deferred: removeLater only marks the entity, and compact
+ * swap-removes everything marked, in O(1) each. Until then indices and
+ * iteration are unaffected, so entities can be removed mid-loop. Removal
+ * does not keep order. Read as a List, the arena is its live entities in
+ * dense order; add appends. The List's own removal methods are unsupported,
+ * so code outside the owner should be handed an EntityView instead.
+ */
+public class EntityArena<T> extends AbstractList<T> implements EntityView<T> {
+    public static final long NONE = 0;
+    
+    private Object[] dense = new Object[16];
+    private int[] denseSlot = new int[16];
+    private boolean[] doomed = new boolean[16];
+    private int size;
+    private int doomedCount;
+    
+    private int[] slotDense = new int[16];      // index in dense, or -1 while free
+    private int[] generation = new int[16];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount;
+    
+    /**
+     * Adds an entity and returns its handle
+     */
+    public long put(T entity) {
+        if (size == dense.length) {
+            dense = Arrays.copyOf(dense, size * 2);
+            denseSlot = Arrays.copyOf(denseSlot, size * 2);
+            doomed = Arrays.copyOf(doomed, size * 2);
+        }
+        
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == slotDense.length) {
+                slotDense = Arrays.copyOf(slotDense, slotCount * 2);
+                generation = Arrays.copyOf(generation, slotCount * 2);
+                freeSlots = Arrays.copyOf(freeSlots, slotCount * 2);
+            }
+            slot = slotCount++;
+            generation[slot] = 1;
+        }
+        
+        dense[size] = entity;
+        denseSlot[size] = slot;
+        doomed[size] = false;
+        slotDense[slot] = size;
+        size++;
+        return handle(slot, generation[slot]);
+    }
+    
+    @Override
+    public boolean add(T entity) {
+        put(entity);
+        return true;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        return (T) dense[index];
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public long handleAt(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        int slot = denseSlot[index];
+        return handle(slot, generation[slot]);
+    }
+    
+    /**
+     * The entity behind the handle, or null once it has been compacted away
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(long handle) {
+        int index = indexOfHandle(handle);
+        return index >= 0 ? (T) dense[index] : null;
+    }
+    
+    /**
+     * Dense index of the handle's entity, or -1 if the handle is stale
+     */
+    public int indexOfHandle(long handle) {
+        int slot = (int) handle;
+        if (slot < 0 || slot >= slotCount) return -1;
+        if (generation[slot] != (int) (handle >>> 32)) return -1;
+        return slotDense[slot];
+    }
+    
+    @Override
+    public void removeLater(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        if (!doomed[index]) {
+            doomed[index] = true;
+            doomedCount++;
+        }
+    }
+    
+    @Override
+    public void removeLater(long handle) {
+        int index = indexOfHandle(handle);
+        if (index >= 0) removeLater(index);
+    }
+    
+    /**
+     * Swap-removes every entity marked by removeLater. Call between passes,
+     * not while iterating.
+     */
+    public void compact() {
+        // From the back, so whatever is moved down has already been kept
+        for (int i = size - 1; doomedCount > 0 && i >= 0; i--) {
+            if (!doomed[i]) continue;
+            freeSlot(denseSlot[i]);
+            doomedCount--;
+            
+            int last = --size;
+            if (i != last) {
+                dense[i] = dense[last];
+                denseSlot[i] = denseSlot[last];
+                slotDense[denseSlot[i]] = i;
+            }
+            dense[last] = null;
+            doomed[i] = false;
+        }
+    }
+    
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            freeSlot(denseSlot[i]);
+            dense[i] = null;
+            doomed[i] = false;
+        }
+        size = 0;
+        doomedCount = 0;
+    }
+    
+    private void freeSlot(int slot) {
+        slotDense[slot] = -1;
+        // Generations skip 0 so that NONE never resolves
+        if (++generation[slot] == 0) generation[slot] = 1;
+        freeSlots[freeCount++] = slot;
+    }
+    
+    private static long handle(int slot, int generation) {
+        return ((long) generation << 32) | slot;
+    }
+}
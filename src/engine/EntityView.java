@@ -0,0 +1,15 @@
+package engine;
+
+/**
+ * An EntityArena without its List methods: adding, reading and deferred
+ * removal only, so a List-style remove doesn't compile
+ */
+public interface EntityView<T> {
+    boolean add(T entity);
+    T get(int index);
+    T get(long handle);
+    int size();
+    long handleAt(int index);
+    void removeLater(int index);
+    void removeLater(long handle);
+}
@@ -0,0 +1,84 @@
+package engine;
+
+/**
+ * Skips render frames while the machine can't keep up with the tick rate, so
+ * the simulation keeps real-time speed instead of slowing down with rendering.
+ * Update cost is reported by the simulation thread, render cost by the render
+ * thread; the skip level rises under load and steps back down once it clears.
+ */
+public class FrameSkipGovernor {
+    private static final double SMOOTHING = 0.1;
+    private static final double OVERLOAD = 0.9;
+    private static final double RECOVERED = 0.6;
+    private static final int RECOVERY_TICKS = 30;
+    
+    private final long tickNanos;
+    private final int maxSkip;
+    
+    private volatile double avgUpdateNanos = 0;
+    private volatile double avgRenderNanos = 0;
+    private volatile int skipLevel = 0;
+    private int calmTicks = 0;
+    
+    private int sinceLastRender = 0;
+    private volatile double skipRatio = 0;
+    private volatile long renderedFrames = 0;
+    private volatile long skippedFrames = 0;
+    
+    public FrameSkipGovernor(long tickNanos, int maxSkip) {
+        this.tickNanos = tickNanos;
+        this.maxSkip = Math.max(0, maxSkip);
+    }
+    
+    public void recordUpdate(long nanos) {
+        avgUpdateNanos += (nanos - avgUpdateNanos) * SMOOTHING;
+    }
+    
+    public void recordRender(long nanos) {
+        avgRenderNanos += (nanos - avgRenderNanos) * SMOOTHING;
+    }
+    
+    /**
+     * Called by the loop after each pass with the number of ticks it had to run
+     */
+    public void endPass(int ticks) {
+        double cost = avgUpdateNanos + avgRenderNanos / (skipLevel + 1);
+        
+        if (ticks > 1 || cost > tickNanos * OVERLOAD) {
+            calmTicks = 0;
+            if (skipLevel < maxSkip) skipLevel++;
+        } else if (cost < tickNanos * RECOVERED) {
+            calmTicks += ticks;
+            if (calmTicks >= RECOVERY_TICKS) {
+                calmTicks = 0;
+                if (skipLevel > 0) skipLevel--;
+            }
+        }
+    }
+    
+    /**
+     * Asked by the renderer once per frame opportunity
+     */
+    public boolean shouldRender() {
+        boolean render = sinceLastRender >= skipLevel;
+        
+        if (render) {
+            sinceLastRender = 0;
+            renderedFrames++;
+        } else {
+            sinceLastRender++;
+            skippedFrames++;
+        }
+        skipRatio += ((render ? 0 : 1) - skipRatio) * SMOOTHING;
+        
+        return render;
+    }
+    
+    public double getSkipRatio() { return skipRatio; }
+    public int getSkipLevel() { return skipLevel; }
+    public int getMaxSkip() { return maxSkip; }
+    public long getRenderedFrames() { return renderedFrames; }
+    public long getSkippedFrames() { return skippedFrames; }
+    public double getAvgUpdateNanos() { return avgUpdateNanos; }
+    public double getAvgRenderNanos() { return avgRenderNanos; }
+}
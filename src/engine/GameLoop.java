@@ -0,0 +1,153 @@
+package engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-timestep game loop with hybrid sleep/park/spin frame pacing
+ */
+public class GameLoop implements Runnable {
+    public interface Callbacks {
+        void update();
+        void render();
+        
+        // While idle the loop ticks at the idle rate until woken
+        default boolean isIdle() { return false; }
+    }
+    
+    // Thread.sleep is only trusted to within a couple of milliseconds and
+    // parkNanos to within a few hundred microseconds; the rest is spun out.
+    private static final long SLEEP_MARGIN = 2_000_000L;
+    private static final long SPIN_MARGIN = 200_000L;
+    
+    private final Callbacks callbacks;
+    private final long tickNanos;
+    private long idleTickNanos;
+    private int maxCatchUpTicks = 5;
+    private FrameSkipGovernor governor;
+    
+    private volatile boolean running = true;
+    private volatile boolean woken = false;
+    private volatile Thread loopThread;
+    
+    private volatile long tickCount = 0;
+    private volatile long frameCount = 0;
+    private volatile long missedDeadlines = 0;
+    private volatile long droppedTicks = 0;
+    
+    public GameLoop(Callbacks callbacks, int ticksPerSecond) {
+        this.callbacks = callbacks;
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.idleTickNanos = tickNanos;
+    }
+    
+    @Override
+    public void run() {
+        loopThread = Thread.currentThread();
+        long nextTick = System.nanoTime();
+        
+        while (running) {
+            if (callbacks.isIdle()) {
+                woken = false;
+                callbacks.update();
+                tickCount++;
+                callbacks.render();
+                frameCount++;
+                
+                idleUntil(System.nanoTime() + idleTickNanos);
+                nextTick = System.nanoTime();
+                continue;
+            }
+            
+            long now = System.nanoTime();
+            int ticks = 0;
+            
+            while (now - nextTick >= 0 && ticks < maxCatchUpTicks) {
+                if (now - nextTick > tickNanos) {
+                    missedDeadlines++;
+                }
+                if (governor != null) {
+                    long start = System.nanoTime();
+                    callbacks.update();
+                    governor.recordUpdate(System.nanoTime() - start);
+                } else {
+                    callbacks.update();
+                }
+                tickCount++;
+                nextTick += tickNanos;
+                ticks++;
+                now = System.nanoTime();
+            }
+            
+            // Still a full tick behind after catching up: give up on the backlog
+            // instead of spiralling, and resume from the current time.
+            if (now - nextTick >= tickNanos) {
+                long behind = (now - nextTick) / tickNanos;
+                droppedTicks += behind;
+                nextTick += behind * tickNanos;
+            }
+            
+            if (governor != null && ticks > 0) {
+                governor.endPass(ticks);
+            }
+            
+            if (ticks > 0) {
+                callbacks.render();
+                frameCount++;
+            }
+            
+            sleepUntil(nextTick);
+        }
+    }
+    
+    public void stop() {
+        running = false;
+        wake();
+    }
+    
+    /**
+     * Ends an idle wait early, e.g. when input arrives
+     */
+    public void wake() {
+        woken = true;
+        Thread t = loopThread;
+        if (t != null) LockSupport.unpark(t);
+    }
+    
+    private void idleUntil(long deadline) {
+        long remaining;
+        while (!woken && running && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+    
+    public static void sleepUntil(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        
+        if (remaining > SLEEP_MARGIN) {
+            try {
+                Thread.sleep((remaining - SLEEP_MARGIN) / 1_000_000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        
+        while ((remaining = deadline - System.nanoTime()) > SPIN_MARGIN) {
+            LockSupport.parkNanos(remaining - SPIN_MARGIN);
+        }
+        
+        while (deadline - System.nanoTime() > 0) {
+            Thread.yield();
+        }
+    }
+    
+    public void setIdleTicksPerSecond(int ticksPerSecond) { idleTickNanos = 1_000_000_000L / Math.max(1, ticksPerSecond); }
+    public void setGovernor(FrameSkipGovernor governor) { this.governor = governor; }
+    public void setMaxCatchUpTicks(int ticks) { maxCatchUpTicks = Math.max(1, ticks); }
+    public boolean isRunning() { return running; }
+    public long getTickNanos() { return tickNanos; }
+    public long getTickCount() { return tickCount; }
+    public long getFrameCount() { return frameCount; }
+    public long getMissedDeadlines() { return missedDeadlines; }
+    public long getDroppedTicks() { return droppedTicks; }
+}
@@ -0,0 +1,69 @@
+package engine;
+
+/**
+ * Fixed-size log-linear histogram of nanosecond durations. Each power of two
+ * is split into four buckets, so percentiles are within 25% of the real
+ * value. Recording never allocates; one thread records, any thread may read.
+ */
+public class Histogram {
+    private static final int SUB_BUCKETS = 4;
+    private static final int MAX_EXPONENT = 40;
+    public static final int BUCKETS = SUB_BUCKETS * MAX_EXPONENT;
+    
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long total = 0;
+    private long max = 0;
+    
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucketOf(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) max = nanos;
+    }
+    
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts[i] = 0;
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+    
+    static int bucketOf(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, SUB_BUCKETS * (exp - 1) + sub);
+    }
+    
+    /**
+     * Largest value that falls into the given bucket
+     */
+    public static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exp = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exp - 2);
+        return (SUB_BUCKETS + sub) * width + width - 1;
+    }
+    
+    /**
+     * Value at the given percentile (0-100), rounded up to its bucket bound
+     */
+    public long percentile(double p) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * p / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+    
+    public long getCount() { return count; }
+    public long getMax() { return max; }
+    public long getBucketCount(int bucket) { return counts[bucket]; }
+    public double getMean() { return count == 0 ? 0 : total / (double) count; }
+}
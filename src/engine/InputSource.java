@@ -0,0 +1,8 @@
+package engine;
+
+/**
+ * Drives a KeyHandler without a keyboard, one simulation tick at a time
+ */
+public interface InputSource {
+    void apply(KeyHandler keys, long tick);
+}
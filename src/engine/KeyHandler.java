@@ -12,6 +12,15 @@ public class KeyHandler implements KeyListener {
     public boolean zPressed, xPressed;
     public boolean startPressed, selectPressed;
     
+    // Debug keys: F3 toggles the frame timing overlay, F4 dumps timings to CSV
+    public boolean timingOverlayPressed, timingDumpPressed;
+    
+    private Runnable wakeListener;
+    
+    public void setWakeListener(Runnable listener) {
+        wakeListener = listener;
+    }
+    
     @Override
     public void keyTyped(KeyEvent e) {
     }
@@ -56,6 +65,14 @@ public class KeyHandler implements KeyListener {
         if (code == KeyEvent.VK_BACK_SPACE) {
             selectPressed = true;
         }
+        if (code == KeyEvent.VK_F3) {
+            timingOverlayPressed = true;
+        }
+        if (code == KeyEvent.VK_F4) {
+            timingDumpPressed = true;
+        }
+        
+        if (wakeListener != null) wakeListener.run();
     }
     
     @Override
@@ -95,5 +112,13 @@ public class KeyHandler implements KeyListener {
         if (code == KeyEvent.VK_BACK_SPACE) {
             selectPressed = false;
         }
+        if (code == KeyEvent.VK_F3) {
+            timingOverlayPressed = false;
+        }
+        if (code == KeyEvent.VK_F4) {
+            timingDumpPressed = false;
+        }
+        
+        if (wakeListener != null) wakeListener.run();
     }
 }
@@ -0,0 +1,58 @@
+package engine;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded free list of reusable objects. A reused object is reset before it
+ * is handed out; objects released while the list is full are left to the
+ * garbage collector. Counts hits, misses and the most objects out at once,
+ * for sizing. Not thread-safe: use from one thread.
+ */
+public class ObjectPool<T> {
+    private final Object[] free;
+    private final Supplier<T> factory;
+    private final Consumer<T> reset;
+    private int freeCount;
+    
+    private int out, highWater;
+    private long hits, misses;
+    
+    public ObjectPool(int capacity, Supplier<T> factory, Consumer<T> reset) {
+        this.free = new Object[Math.max(0, capacity)];
+        this.factory = factory;
+        this.reset = reset;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        T obj;
+        if (freeCount > 0) {
+            obj = (T) free[--freeCount];
+            free[freeCount] = null;
+            reset.accept(obj);
+            hits++;
+        } else {
+            obj = factory.get();
+            misses++;
+        }
+        if (++out > highWater) highWater = out;
+        return obj;
+    }
+    
+    /**
+     * Hands an object back. It must not be used again by the caller.
+     */
+    public void release(T obj) {
+        if (out > 0) out--;
+        if (freeCount < free.length) {
+            free[freeCount++] = obj;
+        }
+    }
+    
+    public int getCapacity() { return free.length; }
+    public int getFreeCount() { return freeCount; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public int getHighWater() { return highWater; }
+}
@@ -0,0 +1,65 @@
+package engine;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Times named phases of a frame into histograms. A phase must always be
+ * started and stopped on the same thread, but different phases can belong
+ * to different threads (e.g. update phases on the simulation thread and
+ * render phases on the render thread).
+ */
+public class PhaseTimer {
+    private final String[] names;
+    private final Histogram[] histograms;
+    private final long[] starts;
+    
+    public PhaseTimer(String... names) {
+        this.names = names.clone();
+        this.histograms = new Histogram[names.length];
+        this.starts = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+    
+    public void start(int phase) {
+        starts[phase] = System.nanoTime();
+    }
+    
+    public void stop(int phase) {
+        histograms[phase].record(System.nanoTime() - starts[phase]);
+    }
+    
+    public void record(int phase, long nanos) {
+        histograms[phase].record(nanos);
+    }
+    
+    public int getPhaseCount() { return names.length; }
+    public String getName(int phase) { return names[phase]; }
+    public Histogram getHistogram(int phase) { return histograms[phase]; }
+    
+    /**
+     * Writes one row per phase: summary columns in microseconds followed by
+     * the raw bucket counts, headed by each bucket's upper bound in ns
+     */
+    public void writeCsv(String path) throws IOException {
+        try (PrintWriter out = new PrintWriter(path, "UTF-8")) {
+            out.print("phase,count,mean_us,p50_us,p99_us,max_us");
+            for (int b = 0; b < Histogram.BUCKETS; b++) {
+                out.print(",le_" + Histogram.upperBound(b));
+            }
+            out.println();
+            
+            for (int i = 0; i < names.length; i++) {
+                Histogram h = histograms[i];
+                out.printf(java.util.Locale.ROOT, "%s,%d,%.2f,%.2f,%.2f,%.2f", names[i], h.getCount(),
+                    h.getMean() / 1000.0, h.percentile(50) / 1000.0, h.percentile(99) / 1000.0, h.getMax() / 1000.0);
+                for (int b = 0; b < Histogram.BUCKETS; b++) {
+                    out.print("," + h.getBucketCount(b));
+                }
+                out.println();
+            }
+        }
+    }
+}
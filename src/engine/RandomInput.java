@@ -0,0 +1,43 @@
+package engine;
+
+import java.util.Random;
+
+/**
+ * Holds a random direction for a random number of ticks, with occasional
+ * sword swings and menu presses mixed in. Directions lean towards a heading
+ * that itself changes now and then, so play drifts from room to room instead
+ * of milling about one screen.
+ */
+public class RandomInput implements InputSource {
+    private final Random random;
+    private long nextChange = 0;
+    private long nextHeading = 0;
+    private int heading;
+    
+    public RandomInput(long seed) {
+        random = new Random(seed);
+    }
+    
+    @Override
+    public void apply(KeyHandler keys, long tick) {
+        keys.zPressed = random.nextInt(20) == 0;
+        keys.selectPressed = false;
+        
+        keys.startPressed = random.nextInt(600) == 0;
+        
+        if (tick >= nextHeading) {
+            nextHeading = tick + 600 + random.nextInt(1800);
+            heading = random.nextInt(4);
+        }
+        
+        if (tick < nextChange) return;
+        nextChange = tick + 10 + random.nextInt(50);
+        
+        // Half the time the heading, otherwise any direction or none
+        int dir = random.nextBoolean() ? heading : random.nextInt(5);
+        keys.upPressed = dir == 0;
+        keys.rightPressed = dir == 1;
+        keys.downPressed = dir == 2;
+        keys.leftPressed = dir == 3;
+    }
+}
@@ -0,0 +1,78 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays key changes from a text script. Each line is "tick key down|up",
+ * e.g. "120 start down"; blank lines and lines starting with # are skipped.
+ */
+public class ScriptedInput implements InputSource {
+    private final List<long[]> events = new ArrayList<>();
+    private int next = 0;
+    
+    private static final String[] KEYS = {
+        "up", "down", "left", "right", "z", "x", "start", "select", "escape", "enter", "space"
+    };
+    
+    public ScriptedInput(String path) throws IOException {
+        try (BufferedReader in = new BufferedReader(new FileReader(path))) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                
+                String[] parts = line.split("\\s+");
+                int key = parts.length == 3 ? keyIndex(parts[1]) : -1;
+                if (key < 0 || !(parts[2].equals("down") || parts[2].equals("up"))) {
+                    throw new IOException(path + ":" + lineNo + ": bad input line: " + line);
+                }
+                long tick;
+                try {
+                    tick = Long.parseLong(parts[0]);
+                } catch (NumberFormatException e) {
+                    throw new IOException(path + ":" + lineNo + ": bad tick: " + line);
+                }
+                events.add(new long[] { tick, key, parts[2].equals("down") ? 1 : 0 });
+            }
+        }
+        events.sort((a, b) -> Long.compare(a[0], b[0]));
+    }
+    
+    private static int keyIndex(String name) {
+        for (int i = 0; i < KEYS.length; i++) {
+            if (KEYS[i].equalsIgnoreCase(name)) return i;
+        }
+        return -1;
+    }
+    
+    @Override
+    public void apply(KeyHandler keys, long tick) {
+        while (next < events.size() && events.get(next)[0] <= tick) {
+            long[] e = events.get(next++);
+            boolean down = e[2] == 1;
+            switch ((int) e[1]) {
+                case 0: keys.upPressed = down; break;
+                case 1: keys.downPressed = down; break;
+                case 2: keys.leftPressed = down; break;
+                case 3: keys.rightPressed = down; break;
+                case 4: keys.zPressed = down; break;
+                case 5: keys.xPressed = down; break;
+                case 6: keys.startPressed = down; break;
+                case 7: keys.selectPressed = down; break;
+                case 8: keys.escapePressed = down; break;
+                case 9: keys.enterPressed = down; break;
+                case 10: keys.spacePressed = down; break;
+            }
+        }
+    }
+    
+    public boolean isFinished() {
+        return next >= events.size();
+    }
+}
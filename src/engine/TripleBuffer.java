@@ -0,0 +1,67 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free single-writer/single-reader triple buffer. The writer fills
+ * back() and publishes it; the reader always gets the most recently
+ * published slot and never sees one that is still being written.
+ */
+public class TripleBuffer<T> {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+    
+    private final Object[] slots = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(2);
+    private int back = 0;
+    private int front = 1;
+    
+    private volatile Thread reader;
+    
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = factory.get();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T) slots[back];
+    }
+    
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+        
+        Thread r = reader;
+        if (r != null) LockSupport.unpark(r);
+    }
+    
+    public boolean hasFresh() {
+        return (middle.get() & FRESH) != 0;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if (hasFresh()) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return (T) slots[front];
+    }
+    
+    /**
+     * Parks the calling reader until something is published or the timeout runs out
+     */
+    public boolean awaitFresh(long timeoutNanos) {
+        reader = Thread.currentThread();
+        long deadline = System.nanoTime() + timeoutNanos;
+        
+        while (!hasFresh()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return false;
+            LockSupport.parkNanos(this, remaining);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package zelda;
+
+/**
+ * Axis-aligned box in room pixels, read straight off the entity so that
+ * collision tests allocate nothing. Min is inclusive and max exclusive, as
+ * with Rectangle; a box with no width or height overlaps nothing.
+ */
+public interface AABB {
+    int getMinX();
+    int getMinY();
+    int getMaxX();
+    int getMaxY();
+    
+    static boolean overlaps(AABB a, AABB b) {
+        int ax0 = a.getMinX(), ay0 = a.getMinY(), ax1 = a.getMaxX(), ay1 = a.getMaxY();
+        int bx0 = b.getMinX(), by0 = b.getMinY(), bx1 = b.getMaxX(), by1 = b.getMaxY();
+        if (ax1 <= ax0 || ay1 <= ay0 || bx1 <= bx0 || by1 <= by0) return false;
+        return ax0 < bx1 && bx0 < ax1 && ay0 < by1 && by0 < ay1;
+    }
+    
+    /**
+     * A box that isn't an entity, such as the sword swing
+     */
+    final class Box implements AABB {
+        private int x, y, width, height;
+        
+        public Box(int x, int y, int width, int height) {
+            set(x, y, width, height);
+        }
+        
+        public void set(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+        
+        @Override public int getMinX() { return x; }
+        @Override public int getMinY() { return y; }
+        @Override public int getMaxX() { return x + width; }
+        @Override public int getMaxY() { return y + height; }
+    }
+}
@@ -0,0 +1,53 @@
+package zelda;
+
+import java.awt.*;
+
+public class Bomb {
+    private static final int FUSE = 48;
+    private static final int BLAST = 10;
+    public static final int RADIUS = 24;
+    
+    private static final Color BODY = new Color(32, 56, 236);
+    private static final Color FLASH = new Color(252, 252, 252, 200);
+    
+    private final double x, y;
+    private int timer = FUSE + BLAST;
+    
+    public Bomb(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+    
+    /**
+     * Ticks the fuse; true on the one tick the bomb goes off
+     */
+    public boolean update() {
+        timer--;
+        return timer == BLAST;
+    }
+    
+    public void snapshot(RenderState state) {
+        if (!isActive()) return;
+        
+        RenderState.Sprite s = state.addSprite();
+        s.shape = RenderState.SHAPE_OVAL;
+        if (timer > BLAST) {
+            s.x = (float) x - 5;
+            s.y = (float) y - 6;
+            s.width = 10;
+            s.height = 12;
+            s.color = BODY;
+            s.outline = Color.WHITE;
+        } else {
+            s.x = (float) x - RADIUS;
+            s.y = (float) y - RADIUS;
+            s.width = RADIUS * 2;
+            s.height = RADIUS * 2;
+            s.color = FLASH;
+        }
+    }
+    
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public boolean isActive() { return timer > 0; }
+}
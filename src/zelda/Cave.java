@@ -5,6 +5,8 @@ import javax.swing.ImageIcon;
 import java.io.File;
 
 public class Cave {
+    private static final AABB SWORD_BOX = new AABB.Box(120, 100, 16, 16);
+    
     private boolean active = false;
     private boolean swordTaken = false;
     
@@ -42,8 +44,7 @@ public class Cave {
     public void update(ZeldaPlayer player) {
         if (!active || swordTaken) return;
         
-        Rectangle swordBox = new Rectangle(120, 100, 16, 16);
-        if (player.getHitbox().intersects(swordBox)) {
+        if (AABB.overlaps(player, SWORD_BOX)) {
             swordTaken = true;
             player.setSword(true);
         }
@@ -53,7 +54,7 @@ public class Cave {
         return player.getWorldY() > 160;
     }
     
-    public void render(Graphics2D g2) {
+    public void render(Graphics2D g2, RenderState state) {
         g2.setColor(Color.BLACK);
         g2.fillRect(0, 0, 256, 176);
         
@@ -73,7 +74,7 @@ public class Cave {
             g2.fillRect(120, 48, 16, 16);
         }
         
-        if (!swordTaken) {
+        if (!state.caveSwordTaken) {
             if (swordSprite != null) {
                 g2.drawImage(swordSprite, 122, 100, 12, 16, null);
             } else {
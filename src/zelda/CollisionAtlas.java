@@ -0,0 +1,173 @@
+package zelda;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Baked overworld collision, so the map doesn't have to be colour-sampled on
+ * every launch. The file is a fixed header followed by the raw tile bytes in
+ * CollisionMap's layout:
+ *
+ *   int magic 'ZCOL', int version, int roomsX, int roomsY, int tilesX,
+ *   int tilesY, long source PNG CRC32, long payload CRC32, byte[] tiles
+ *
+ * It is baked at build time (ant bake-collision, or run this class) and
+ * rebuilt at runtime when the map PNG no longer matches the stored CRC.
+ */
+public class CollisionAtlas {
+    public static final String DEFAULT_PATH = "data/collision.atlas";
+    
+    private static final int MAGIC = 0x5A434F4C;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 6 * 4 + 2 * 8;
+    
+    private CollisionAtlas() {}
+    
+    public static long sourceCrc(File source) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(source))) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                crc.update(buf, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+    
+    /**
+     * Maps the atlas and returns its tile bytes, or null if the file is
+     * missing, corrupt, from another version or baked from a different map
+     */
+    public static ByteBuffer map(File atlas, long expectedSourceCrc, int roomsX, int roomsY, int tilesX, int tilesY) {
+        if (!atlas.isFile()) return null;
+        
+        try (FileChannel channel = FileChannel.open(atlas.toPath(), StandardOpenOption.READ)) {
+            long payloadSize = (long) roomsX * roomsY * tilesX * tilesY;
+            if (channel.size() != HEADER_SIZE + payloadSize) return null;
+            
+            // Check the header before mapping, so a stale atlas is never mapped
+            // (on Windows a mapped file can't be replaced)
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) > 0) {}
+            header.flip();
+            if (header.remaining() < HEADER_SIZE) return null;
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+            if (header.getInt() != roomsX || header.getInt() != roomsY || header.getInt() != tilesX || header.getInt() != tilesY) return null;
+            
+            long sourceCrc = header.getLong();
+            long payloadCrc = header.getLong();
+            if (sourceCrc != expectedSourceCrc) return null;
+            
+            MappedByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, payloadSize);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if (crc.getValue() != payloadCrc) {
+                System.err.println("[Collision] Atlas checksum mismatch: " + atlas);
+                return null;
+            }
+            return payload;
+        } catch (IOException e) {
+            System.err.println("[Collision] Atlas read failed: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Writes to a temporary file next to the atlas and renames it into place,
+     * so a reader never sees a half-written file
+     */
+    public static void write(File atlas, long sourceCrc, int roomsX, int roomsY, int tilesX, int tilesY, byte[] tiles) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(tiles);
+        
+        File dir = atlas.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        
+        File tmp = new File(atlas.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(roomsX);
+            out.writeInt(roomsY);
+            out.writeInt(tilesX);
+            out.writeInt(tilesY);
+            out.writeLong(sourceCrc);
+            out.writeLong(crc.getValue());
+            out.write(tiles);
+        }
+        
+        atlas.delete();
+        if (!tmp.renameTo(atlas)) {
+            tmp.delete();
+            throw new IOException("Could not move " + tmp + " to " + atlas);
+        }
+    }
+    
+    /**
+     * Fills the overworld from the atlas, rebuilding and rewriting it first
+     * if it is missing or stale. Returns true if the atlas was up to date.
+     */
+    public static boolean load(CollisionMap map, File atlas, File source) {
+        long start = System.nanoTime();
+        
+        long crc;
+        try {
+            crc = sourceCrc(source);
+        } catch (IOException e) {
+            System.err.println("[Collision] Map not readable, atlas skipped: " + e.getMessage());
+            return false;
+        }
+        
+        ByteBuffer tiles = map(atlas, crc, map.getRoomsX(CollisionMap.OVERWORLD), map.getRoomsY(CollisionMap.OVERWORLD),
+            CollisionMap.TILES_X, CollisionMap.TILES_Y);
+        if (tiles != null) {
+            map.loadWorld(CollisionMap.OVERWORLD, tiles);
+            System.out.printf("[Collision] Mapped %s in %.1f ms%n", atlas, (System.nanoTime() - start) / 1e6);
+            return true;
+        }
+        
+        map.buildOverworld();
+        try {
+            write(atlas, crc, map.getRoomsX(CollisionMap.OVERWORLD), map.getRoomsY(CollisionMap.OVERWORLD),
+                CollisionMap.TILES_X, CollisionMap.TILES_Y, map.getWorldTiles(CollisionMap.OVERWORLD));
+            System.out.printf("[Collision] Rebuilt %s in %.1f ms%n", atlas, (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            System.err.println("[Collision] Atlas write failed: " + e.getMessage());
+        }
+        return false;
+    }
+    
+    /**
+     * Build step: java -cp build/classes zelda.CollisionAtlas [atlas] [map.png]
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        
+        File atlas = new File(args.length > 0 ? args[0] : DEFAULT_PATH);
+        File source = new File(args.length > 1 ? args[1] : OverworldRenderer.MAP_PATH);
+        
+        // The map image is only decoded if the atlas actually needs rebaking
+        CollisionMap map = new CollisionMap();
+        boolean upToDate = false;
+        try {
+            upToDate = map(atlas, sourceCrc(source), map.getRoomsX(CollisionMap.OVERWORLD),
+                map.getRoomsY(CollisionMap.OVERWORLD), CollisionMap.TILES_X, CollisionMap.TILES_Y) != null;
+        } catch (IOException e) {
+            System.err.println("[Collision] Map not readable: " + e.getMessage());
+            System.exit(1);
+        }
+        if (!upToDate) {
+            map.setRenderer(new OverworldRenderer(source.getPath()));
+            load(map, atlas, source);
+        }
+        
+        System.out.println("[Collision] " + atlas + (upToDate ? " is up to date" : " baked"));
+    }
+}
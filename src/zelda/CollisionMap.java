@@ -1,68 +1,516 @@
 package zelda;
 
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+/**
+ * Tile collision for every room, in flat byte arrays per world. The
+ * overworld is world 0 and dungeon n is world n, so dungeon rooms never
+ * share collision with the overworld room at the same coordinates.
+ * Each world is split into pages of PAGE_ROOMS rooms that are allocated the
+ * first time one of their rooms is touched, so a very large world costs
+ * nothing for rooms nobody visits. Grids are filled in the first time a
+ * room is looked at; lookups after that allocate nothing.
+ *
+ * In pixel-precise mode walkability comes from a per-room bitmask of the
+ * map image instead of the tile grid, tested 64 pixels per word.
+ */
 public class CollisionMap {
-    private static final int TILES_X = 16;
-    private static final int TILES_Y = 11;
+    public static final int OVERWORLD = 0;
+    public static final int MAX_WORLDS = 16;
     
-    private HashMap<String, int[][]> roomCollisions = new HashMap<>();
-    private static OverworldRenderer renderer;
+    static final int TILES_X = 16;
+    static final int TILES_Y = 11;
+    private static final int TILES_PER_ROOM = TILES_X * TILES_Y;
+    private static final int TILE_SIZE = 16;
     
-    public CollisionMap() {}
+    // Summed-area table of blocked tiles per room, one row and column wider
+    // than the room so area sums need no edge cases
+    private static final int SUMS_X = TILES_X + 1;
+    private static final int SUMS_PER_ROOM = SUMS_X * (TILES_Y + 1);
+    private static final int[] DEFAULT_SUMS = new int[SUMS_PER_ROOM];
+    
+    // Pixel masks: one bit per pixel, rows of MASK_WORDS longs
+    private static final int ROOM_WIDTH = TILES_X * TILE_SIZE;
+    private static final int ROOM_HEIGHT = TILES_Y * TILE_SIZE;
+    private static final int MASK_WORDS = ROOM_WIDTH / 64;
+    private static final long[] DEFAULT_MASK;
+    
+    private static final int PAGE_ROOMS = 64;
+    
+    private static final int DUNGEON_ROOMS_X = 8;
+    private static final int DUNGEON_ROOMS_Y = 8;
+    
+    // [world][page][...]
+    private final byte[][][] tiles = new byte[MAX_WORLDS][][];
+    private final boolean[][][] built = new boolean[MAX_WORLDS][][];
+    private final int[][][] blockedSums = new int[MAX_WORLDS][][];
+    private final long[][][][] masks = new long[MAX_WORLDS][][][];
+    private final int[] roomsX = new int[MAX_WORLDS];
+    private final int[] roomsY = new int[MAX_WORLDS];
+    
+    private OverworldRenderer renderer;
+    private TerrainEdits edits;
+    private boolean pixelPrecise = false;
+    
+    static {
+        byte[] room = new byte[TILES_PER_ROOM];
+        for (int y = 0; y < TILES_Y; y++) {
+            for (int x = 0; x < TILES_X; x++) {
+                room[y * TILES_X + x] = defaultTile(x, y);
+            }
+        }
+        buildSums(room, 0, DEFAULT_SUMS, 0);
+        DEFAULT_MASK = maskFromTiles(room, 0);
+    }
+    
+    public CollisionMap() {
+        allocateWorld(OVERWORLD, Overworld.MAP_WIDTH, Overworld.MAP_HEIGHT);
+    }
     
     public void setRenderer(OverworldRenderer r) {
         renderer = r;
     }
     
-    public int[][] getCollisionGrid(int roomX, int roomY) {
-        String key = roomX + "," + roomY;
+    public void setPixelPrecise(boolean pixelPrecise) {
+        this.pixelPrecise = pixelPrecise;
+    }
+    
+    public boolean isPixelPrecise() { return pixelPrecise; }
+    
+    /**
+     * Tile edits laid over every room as it is built. Rooms already built
+     * are not touched; see setTile and invalidateRoom.
+     */
+    public void setTerrainEdits(TerrainEdits edits) {
+        this.edits = edits;
+    }
+    
+    private void allocateWorld(int world, int width, int height) {
+        int pages = (width * height + PAGE_ROOMS - 1) / PAGE_ROOMS;
+        roomsX[world] = width;
+        roomsY[world] = height;
+        tiles[world] = new byte[pages][];
+        built[world] = new boolean[pages][];
+        blockedSums[world] = new int[pages][];
+        masks[world] = new long[pages][][];
+    }
+    
+    private void allocatePage(int world, int page) {
+        tiles[world][page] = new byte[PAGE_ROOMS * TILES_PER_ROOM];
+        blockedSums[world][page] = new int[PAGE_ROOMS * SUMS_PER_ROOM];
+        masks[world][page] = new long[PAGE_ROOMS][];
+        built[world][page] = new boolean[PAGE_ROOMS];
+    }
+    
+    // Rooms with no map art get a wall around the edge and open floor inside
+    private static byte defaultTile(int x, int y) {
+        boolean edge = x == 0 || x == TILES_X - 1 || y == 0 || y == TILES_Y - 1;
+        return (byte) (edge ? TileType.WALL.ordinal() : TileType.FLOOR.ordinal());
+    }
+    
+    private static void buildSums(byte[] tiles, int tileOffset, int[] sums, int sumOffset) {
+        for (int x = 0; x < SUMS_X; x++) {
+            sums[sumOffset + x] = 0;
+        }
+        for (int y = 0; y < TILES_Y; y++) {
+            int rowSum = 0;
+            int row = sumOffset + (y + 1) * SUMS_X;
+            sums[row] = 0;
+            for (int x = 0; x < TILES_X; x++) {
+                if (!TileType.fromId(tiles[tileOffset + y * TILES_X + x]).walkable) rowSum++;
+                sums[row + x + 1] = sums[row - SUMS_X + x + 1] + rowSum;
+            }
+        }
+    }
+    
+    // Expands a tile grid to a pixel mask, for rooms with no map art
+    private static long[] maskFromTiles(byte[] tiles, int tileOffset) {
+        long[] mask = new long[ROOM_HEIGHT * MASK_WORDS];
+        for (int ty = 0; ty < TILES_Y; ty++) {
+            for (int tx = 0; tx < TILES_X; tx++) {
+                if (TileType.fromId(tiles[tileOffset + ty * TILES_X + tx]).walkable) continue;
+                
+                int x = tx * TILE_SIZE;
+                long bits = (-1L >>> (64 - TILE_SIZE)) << (x & 63);
+                for (int y = ty * TILE_SIZE; y < (ty + 1) * TILE_SIZE; y++) {
+                    mask[y * MASK_WORDS + (x >>> 6)] |= bits;
+                }
+            }
+        }
+        return mask;
+    }
+    
+    /**
+     * Pixel mask for a built room, generated the first time it is asked for
+     */
+    private long[] roomMask(int world, int room) {
+        int page = room / PAGE_ROOMS;
+        int slot = room % PAGE_ROOMS;
+        long[] mask = masks[world][page][slot];
+        if (mask == null) {
+            if (world == OVERWORLD && renderer != null) {
+                int width = roomsX[world];
+                mask = renderer.generateCollisionMask(room % width, room / width, MASK_WORDS);
+            }
+            if (mask == null) {
+                mask = maskFromTiles(tiles[world][page], slot * TILES_PER_ROOM);
+            } else if (edits != null && edits.hasEdits(world, room % roomsX[world], room / roomsX[world])) {
+                int width = roomsX[world];
+                for (int i = 0; i < TILES_PER_ROOM; i++) {
+                    TileType edit = edits.get(world, room % width, room / width, i % TILES_X, i / TILES_X);
+                    if (edit != null) setMaskTile(mask, i % TILES_X, i / TILES_X, !edit.walkable);
+                }
+            }
+            masks[world][page][slot] = mask;
+        }
+        return mask;
+    }
+    
+    private static void setMaskTile(long[] mask, int tileX, int tileY, boolean blocked) {
+        int x = tileX * TILE_SIZE;
+        long bits = (-1L >>> (64 - TILE_SIZE)) << (x & 63);
+        for (int y = tileY * TILE_SIZE; y < (tileY + 1) * TILE_SIZE; y++) {
+            if (blocked) {
+                mask[y * MASK_WORDS + (x >>> 6)] |= bits;
+            } else {
+                mask[y * MASK_WORDS + (x >>> 6)] &= ~bits;
+            }
+        }
+    }
+    
+    private void buildSums(int world, int room) {
+        int slot = room % PAGE_ROOMS;
+        buildSums(tiles[world][room / PAGE_ROOMS], slot * TILES_PER_ROOM,
+            blockedSums[world][room / PAGE_ROOMS], slot * SUMS_PER_ROOM);
+    }
+    
+    /**
+     * Index of the room within its world, or -1 if the room is outside the
+     * world. Builds the room's grid if it hasn't been yet.
+     */
+    private int roomIndex(int world, int roomX, int roomY) {
+        if (world < 0 || world >= MAX_WORLDS) return -1;
+        if (tiles[world] == null) {
+            allocateWorld(world, DUNGEON_ROOMS_X, DUNGEON_ROOMS_Y);
+        }
+        if (roomX < 0 || roomX >= roomsX[world] || roomY < 0 || roomY >= roomsY[world]) return -1;
         
-        if (roomCollisions.containsKey(key)) {
-            return roomCollisions.get(key);
+        int room = roomY * roomsX[world] + roomX;
+        int page = room / PAGE_ROOMS;
+        if (tiles[world][page] == null) {
+            allocatePage(world, page);
         }
+        if (!built[world][page][room % PAGE_ROOMS]) {
+            buildRoom(world, roomX, roomY, room);
+            built[world][page][room % PAGE_ROOMS] = true;
+        }
+        return room;
+    }
+    
+    private void buildRoom(int world, int roomX, int roomY, int room) {
+        byte[] store = tiles[world][room / PAGE_ROOMS];
+        int offset = (room % PAGE_ROOMS) * TILES_PER_ROOM;
+        
+        // Only the overworld has map art to derive collision from
+        int[][] grid = world == OVERWORLD && renderer != null ? renderer.generateCollisionGrid(roomX, roomY) : null;
         
-        if (renderer != null) {
-            int[][] grid = renderer.generateCollisionGrid(roomX, roomY);
-            roomCollisions.put(key, grid);
-            return grid;
+        for (int y = 0; y < TILES_Y; y++) {
+            for (int x = 0; x < TILES_X; x++) {
+                store[offset + y * TILES_X + x] = grid != null ? (byte) grid[x][y] : defaultTile(x, y);
+            }
+        }
+        if (edits != null) {
+            edits.applyTo(world, roomX, roomY, store, offset);
+        }
+        buildSums(world, room);
+    }
+    
+    /**
+     * Builds every overworld room that isn't built yet, in parallel on the
+     * common fork/join pool. Must finish before the game thread starts
+     * looking rooms up. Returns the number of rooms built.
+     */
+    public int buildOverworld() {
+        int rooms = roomsX[OVERWORLD] * roomsY[OVERWORLD];
+        int missing = 0;
+        for (int page = 0; page < tiles[OVERWORLD].length; page++) {
+            if (tiles[OVERWORLD][page] == null) allocatePage(OVERWORLD, page);
+        }
+        for (int room = 0; room < rooms; room++) {
+            if (!built[OVERWORLD][room / PAGE_ROOMS][room % PAGE_ROOMS]) missing++;
         }
         
-        return createDefaultGrid();
+        ForkJoinPool.commonPool().invoke(new BuildTask(0, rooms));
+        return missing;
     }
     
-    private int[][] createDefaultGrid() {
-        int[][] grid = new int[TILES_X][TILES_Y];
-        for (int x = 0; x < TILES_X; x++) {
-            for (int y = 0; y < TILES_Y; y++) {
-                if (x == 0 || x == TILES_X - 1 || y == 0 || y == TILES_Y - 1) {
-                    grid[x][y] = 1;
-                } else {
-                    grid[x][y] = 0;
+    private class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int ROOMS_PER_TASK = 4;
+        private final int from, to;
+        
+        BuildTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > ROOMS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BuildTask(from, mid), new BuildTask(mid, to));
+                return;
+            }
+            
+            // Each room writes only its own slice of its page
+            int width = roomsX[OVERWORLD];
+            for (int room = from; room < to; room++) {
+                boolean[] done = built[OVERWORLD][room / PAGE_ROOMS];
+                if (!done[room % PAGE_ROOMS]) {
+                    buildRoom(OVERWORLD, room % width, room / width, room);
+                    done[room % PAGE_ROOMS] = true;
+                }
+                if (pixelPrecise) {
+                    roomMask(OVERWORLD, room);
                 }
             }
         }
-        return grid;
     }
     
-    public TileType getTileType(int roomX, int roomY, int tileX, int tileY) {
+    int getRoomsX(int world) { return roomsX[world]; }
+    int getRoomsY(int world) { return roomsY[world]; }
+    
+    /**
+     * Copy of a world's tiles in storage order, building any missing rooms
+     */
+    byte[] getWorldTiles(int world) {
+        int rooms = roomsX[world] * roomsY[world];
+        byte[] out = new byte[rooms * TILES_PER_ROOM];
+        for (int room = 0; room < rooms; room++) {
+            roomIndex(world, room % roomsX[world], room / roomsX[world]);
+            System.arraycopy(tiles[world][room / PAGE_ROOMS], (room % PAGE_ROOMS) * TILES_PER_ROOM,
+                out, room * TILES_PER_ROOM, TILES_PER_ROOM);
+        }
+        return out;
+    }
+    
+    /**
+     * Replaces a world's tiles with ones laid out as getWorldTiles returns them
+     */
+    void loadWorld(int world, ByteBuffer src) {
+        ByteBuffer in = src.duplicate();
+        int rooms = roomsX[world] * roomsY[world];
+        for (int room = 0; room < rooms; room++) {
+            int page = room / PAGE_ROOMS;
+            if (tiles[world][page] == null) allocatePage(world, page);
+            in.get(tiles[world][page], (room % PAGE_ROOMS) * TILES_PER_ROOM, TILES_PER_ROOM);
+            if (edits != null) {
+                edits.applyTo(world, room % roomsX[world], room / roomsX[world], tiles[world][page], (room % PAGE_ROOMS) * TILES_PER_ROOM);
+            }
+            buildSums(world, room);
+            built[world][page][room % PAGE_ROOMS] = true;
+        }
+    }
+    
+    public TileType getTileType(int world, int roomX, int roomY, int tileX, int tileY) {
         if (tileX < 0 || tileX >= TILES_X || tileY < 0 || tileY >= TILES_Y) {
             return TileType.WALL;
         }
         
-        int[][] grid = getCollisionGrid(roomX, roomY);
-        int value = grid[tileX][tileY];
+        int room = roomIndex(world, roomX, roomY);
+        if (room < 0) {
+            return TileType.fromId(defaultTile(tileX, tileY));
+        }
+        return TileType.fromId(tiles[world][room / PAGE_ROOMS][(room % PAGE_ROOMS) * TILES_PER_ROOM + tileY * TILES_X + tileX]);
+    }
+    
+    /**
+     * True if no tile under the given pixel rectangle is blocked, in constant
+     * time whatever the size. The part of the rectangle outside the room is
+     * ignored, as it is for ZeldaRoom.isWalkable.
+     */
+    public boolean isAreaWalkable(int world, int roomX, int roomY, int pixelX, int pixelY, int width, int height) {
+        int x0 = Math.max(0, pixelX);
+        int y0 = Math.max(0, pixelY);
+        int x1 = Math.min(ROOM_WIDTH, pixelX + width);
+        int y1 = Math.min(ROOM_HEIGHT, pixelY + height);
+        if (x0 >= x1 || y0 >= y1) return true;
+        
+        int room = roomIndex(world, roomX, roomY);
+        if (pixelPrecise) {
+            return isMaskClear(room >= 0 ? roomMask(world, room) : DEFAULT_MASK, x0, y0, x1, y1);
+        }
+        
+        // Tile range, end exclusive
+        int tx0 = x0 / TILE_SIZE;
+        int ty0 = y0 / TILE_SIZE;
+        int tx1 = (x1 - 1) / TILE_SIZE + 1;
+        int ty1 = (y1 - 1) / TILE_SIZE + 1;
+        
+        int[] sums = DEFAULT_SUMS;
+        int base = 0;
+        if (room >= 0) {
+            sums = blockedSums[world][room / PAGE_ROOMS];
+            base = (room % PAGE_ROOMS) * SUMS_PER_ROOM;
+        }
+        
+        int blocked = sums[base + ty1 * SUMS_X + tx1] - sums[base + ty0 * SUMS_X + tx1]
+                    - sums[base + ty1 * SUMS_X + tx0] + sums[base + ty0 * SUMS_X + tx0];
+        return blocked == 0;
+    }
+    
+    /**
+     * True if no bit is set in [x0, x1) x [y0, y1), checked a word at a time
+     */
+    private static boolean isMaskClear(long[] mask, int x0, int y0, int x1, int y1) {
+        int firstWord = x0 >>> 6;
+        int lastWord = (x1 - 1) >>> 6;
+        long firstBits = -1L << (x0 & 63);
+        long lastBits = -1L >>> (63 - ((x1 - 1) & 63));
         
-        return TileType.fromId(value);
+        for (int y = y0; y < y1; y++) {
+            int row = y * MASK_WORDS;
+            if (firstWord == lastWord) {
+                if ((mask[row + firstWord] & firstBits & lastBits) != 0) return false;
+                continue;
+            }
+            if ((mask[row + firstWord] & firstBits) != 0) return false;
+            for (int w = firstWord + 1; w < lastWord; w++) {
+                if (mask[row + w] != 0) return false;
+            }
+            if ((mask[row + lastWord] & lastBits) != 0) return false;
+        }
+        return true;
+    }
+    
+    public TileType getTileType(int roomX, int roomY, int tileX, int tileY) {
+        return getTileType(OVERWORLD, roomX, roomY, tileX, tileY);
+    }
+    
+    public boolean isWalkable(int world, int roomX, int roomY, int pixelX, int pixelY) {
+        if (pixelPrecise) {
+            return isAreaWalkable(world, roomX, roomY, pixelX, pixelY, 1, 1);
+        }
+        return getTileType(world, roomX, roomY, pixelX / TILE_SIZE, pixelY / TILE_SIZE).walkable;
     }
     
     public boolean isWalkable(int roomX, int roomY, int pixelX, int pixelY) {
-        int tileX = pixelX / 16;
-        int tileY = pixelY / 16;
-        return getTileType(roomX, roomY, tileX, tileY).walkable;
+        return isWalkable(OVERWORLD, roomX, roomY, pixelX, pixelY);
+    }
+    
+    public void setCustomCollision(int world, int roomX, int roomY, int[][] grid) {
+        int room = roomIndex(world, roomX, roomY);
+        if (room < 0) return;
+        
+        byte[] store = tiles[world][room / PAGE_ROOMS];
+        int offset = (room % PAGE_ROOMS) * TILES_PER_ROOM;
+        for (int y = 0; y < TILES_Y; y++) {
+            for (int x = 0; x < TILES_X; x++) {
+                store[offset + y * TILES_X + x] = (byte) grid[x][y];
+            }
+        }
+        buildSums(world, room);
+        masks[world][room / PAGE_ROOMS][room % PAGE_ROOMS] = maskFromTiles(store, offset);
     }
     
     public void setCustomCollision(int roomX, int roomY, int[][] grid) {
-        roomCollisions.put(roomX + "," + roomY, grid);
+        setCustomCollision(OVERWORLD, roomX, roomY, grid);
+    }
+    
+    /**
+     * Changes one tile of a room in place. Only what the tile touches is
+     * updated: the summed-area cells below and right of it and the tile's
+     * rectangle in the pixel mask.
+     */
+    public void setTile(int world, int roomX, int roomY, int tileX, int tileY, TileType type) {
+        if (tileX < 0 || tileX >= TILES_X || tileY < 0 || tileY >= TILES_Y) return;
+        int room = roomIndex(world, roomX, roomY);
+        if (room < 0) return;
+        
+        int page = room / PAGE_ROOMS;
+        int slot = room % PAGE_ROOMS;
+        int index = slot * TILES_PER_ROOM + tileY * TILES_X + tileX;
+        boolean wasBlocked = !TileType.fromId(tiles[world][page][index]).walkable;
+        tiles[world][page][index] = (byte) type.ordinal();
+        
+        int delta = (type.walkable ? 0 : 1) - (wasBlocked ? 1 : 0);
+        if (delta != 0) {
+            int[] sums = blockedSums[world][page];
+            int base = slot * SUMS_PER_ROOM;
+            for (int y = tileY + 1; y <= TILES_Y; y++) {
+                for (int x = tileX + 1; x <= TILES_X; x++) {
+                    sums[base + y * SUMS_X + x] += delta;
+                }
+            }
+        }
+        
+        long[] mask = masks[world][page][slot];
+        if (mask != null) {
+            setMaskTile(mask, tileX, tileY, !type.walkable);
+        }
+    }
+    
+    public void setTile(int roomX, int roomY, int tileX, int tileY, TileType type) {
+        setTile(OVERWORLD, roomX, roomY, tileX, tileY, type);
+    }
+    
+    /**
+     * Forgets a built room so it is rebuilt from the map (and current edits)
+     * the next time it is looked at
+     */
+    public void invalidateRoom(int world, int roomX, int roomY) {
+        if (world < 0 || world >= MAX_WORLDS || tiles[world] == null) return;
+        if (roomX < 0 || roomX >= roomsX[world] || roomY < 0 || roomY >= roomsY[world]) return;
+        
+        int room = roomY * roomsX[world] + roomX;
+        int page = room / PAGE_ROOMS;
+        if (tiles[world][page] == null) return;
+        built[world][page][room % PAGE_ROOMS] = false;
+        masks[world][page][room % PAGE_ROOMS] = null;
+    }
+    
+    /**
+     * Copy of one room's tiles, building the room first if needed
+     */
+    byte[] getRoomTiles(int world, int roomX, int roomY) {
+        int room = roomIndex(world, roomX, roomY);
+        if (room < 0) return null;
+        int offset = (room % PAGE_ROOMS) * TILES_PER_ROOM;
+        return Arrays.copyOfRange(tiles[world][room / PAGE_ROOMS], offset, offset + TILES_PER_ROOM);
+    }
+    
+    /**
+     * The room's pixel mask, generating it first if needed
+     */
+    long[] getRoomMask(int world, int roomX, int roomY) {
+        int room = roomIndex(world, roomX, roomY);
+        return room < 0 ? null : roomMask(world, room);
+    }
+    
+    /**
+     * Takes a room built by another CollisionMap (the prefetcher's). Rooms
+     * this map has already built are left alone. Game thread only.
+     */
+    void installRoom(int world, int roomX, int roomY, byte[] roomTiles, long[] mask) {
+        if (world < 0 || world >= MAX_WORLDS || tiles[world] == null) return;
+        if (roomX < 0 || roomX >= roomsX[world] || roomY < 0 || roomY >= roomsY[world]) return;
+        
+        int room = roomY * roomsX[world] + roomX;
+        int page = room / PAGE_ROOMS;
+        if (tiles[world][page] == null) {
+            allocatePage(world, page);
+        }
+        if (built[world][page][room % PAGE_ROOMS]) return;
+        
+        System.arraycopy(roomTiles, 0, tiles[world][page], (room % PAGE_ROOMS) * TILES_PER_ROOM, TILES_PER_ROOM);
+        if (edits != null) {
+            edits.applyTo(world, roomX, roomY, tiles[world][page], (room % PAGE_ROOMS) * TILES_PER_ROOM);
+        }
+        buildSums(world, room);
+        masks[world][page][room % PAGE_ROOMS] = mask;
+        built[world][page][room % PAGE_ROOMS] = true;
     }
 }
@@ -0,0 +1,129 @@
+package zelda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import zelda.bosses.Aquamentus;
+import zelda.enemies.*;
+
+/**
+ * What's left of a room once the player walks out: whether it was cleared,
+ * the enemies still alive and the drops still on the floor, packed into a
+ * few small arrays. Projectiles and animation state are not kept.
+ */
+class DormantRoom {
+    private static final byte OCTOROK = 0, MOBLIN = 1, TEKTITE = 2, KEESE = 3,
+        LEEVER = 4, PEAHAT = 5, STALFOS = 6, AQUAMENTUS = 7;
+    
+    // Shared by every room that was cleared and has nothing left on the floor
+    static final DormantRoom CLEARED = new DormantRoom(true, new byte[0], new float[0], new byte[0], new byte[0], new float[0], null);
+    
+    private final boolean cleared;
+    private final byte[] enemyKinds;     // kind << 1 | variant
+    private final float[] enemyPos;      // x, y pairs
+    private final byte[] enemyHealth;
+    private final byte[] itemTypes;
+    private final float[] itemPos;
+    
+    // Enemies with no descriptor are kept as they are
+    private final List<ZeldaEnemy> retained;
+    
+    private DormantRoom(boolean cleared, byte[] enemyKinds, float[] enemyPos, byte[] enemyHealth,
+                        byte[] itemTypes, float[] itemPos, List<ZeldaEnemy> retained) {
+        this.cleared = cleared;
+        this.enemyKinds = enemyKinds;
+        this.enemyPos = enemyPos;
+        this.enemyHealth = enemyHealth;
+        this.itemTypes = itemTypes;
+        this.itemPos = itemPos;
+        this.retained = retained;
+    }
+    
+    static DormantRoom of(boolean cleared, List<ZeldaEnemy> enemies, List<Item> items) {
+        int enemyCount = 0, itemCount = 0;
+        for (ZeldaEnemy e : enemies) if (e.isActive()) enemyCount++;
+        for (Item item : items) if (item.isActive()) itemCount++;
+        if (cleared && enemyCount == 0 && itemCount == 0) return CLEARED;
+        
+        byte[] kinds = new byte[enemyCount];
+        float[] enemyPos = new float[enemyCount * 2];
+        byte[] health = new byte[enemyCount];
+        List<ZeldaEnemy> retained = null;
+        int n = 0;
+        for (ZeldaEnemy e : enemies) {
+            if (!e.isActive()) continue;
+            int kind = kindOf(e);
+            if (kind < 0) {
+                if (retained == null) retained = new ArrayList<>();
+                retained.add(e);
+                continue;
+            }
+            kinds[n] = (byte) (kind << 1 | (e.isVariant() ? 1 : 0));
+            enemyPos[n * 2] = (float) e.getX();
+            enemyPos[n * 2 + 1] = (float) e.getY();
+            health[n] = (byte) e.health;
+            n++;
+        }
+        if (n < enemyCount) {
+            kinds = Arrays.copyOf(kinds, n);
+            enemyPos = Arrays.copyOf(enemyPos, n * 2);
+            health = Arrays.copyOf(health, n);
+        }
+        
+        byte[] types = new byte[itemCount];
+        float[] itemPos = new float[itemCount * 2];
+        int i = 0;
+        for (Item item : items) {
+            if (!item.isActive()) continue;
+            types[i] = (byte) item.getType().ordinal();
+            itemPos[i * 2] = (float) item.getX();
+            itemPos[i * 2 + 1] = (float) item.getY();
+            i++;
+        }
+        
+        return new DormantRoom(cleared, kinds, enemyPos, health, types, itemPos, retained);
+    }
+    
+    private static int kindOf(ZeldaEnemy e) {
+        if (e instanceof Octorok) return OCTOROK;
+        if (e instanceof Moblin) return MOBLIN;
+        if (e instanceof Tektite) return TEKTITE;
+        if (e instanceof Keese) return KEESE;
+        if (e instanceof Leever) return LEEVER;
+        if (e instanceof Peahat) return PEAHAT;
+        if (e instanceof Stalfos) return STALFOS;
+        if (e instanceof Aquamentus) return AQUAMENTUS;
+        return -1;
+    }
+    
+    private static ZeldaEnemy create(int kind, boolean variant, double x, double y) {
+        switch (kind) {
+            case OCTOROK: return new Octorok(x, y, variant);
+            case MOBLIN: return new Moblin(x, y, variant);
+            case TEKTITE: return new Tektite((int) x, (int) y, variant);
+            case KEESE: return new Keese(x, y, variant);
+            case LEEVER: return new Leever((int) x, (int) y, variant);
+            case PEAHAT: return new Peahat((int) x, (int) y);
+            case STALFOS: return new Stalfos(x, y);
+            case AQUAMENTUS: return new Aquamentus(x, y);
+            default: return null;
+        }
+    }
+    
+    void restore(List<ZeldaEnemy> enemies, List<Item> items) {
+        for (int n = 0; n < enemyKinds.length; n++) {
+            ZeldaEnemy e = create(enemyKinds[n] >> 1, (enemyKinds[n] & 1) != 0, enemyPos[n * 2], enemyPos[n * 2 + 1]);
+            e.health = enemyHealth[n];
+            enemies.add(e);
+        }
+        if (retained != null) enemies.addAll(retained);
+        
+        Item.ItemType[] types = Item.ItemType.values();
+        for (int i = 0; i < itemTypes.length; i++) {
+            items.add(Item.obtain(itemPos[i * 2], itemPos[i * 2 + 1], types[itemTypes[i]]));
+        }
+    }
+    
+    boolean isCleared() { return cleared; }
+}
@@ -0,0 +1,64 @@
+package zelda;
+
+/**
+ * Launch-time settings, read from system properties (e.g. -Dzelda.maxFps=144)
+ */
+public final class GameSettings {
+    // Draw between simulation ticks at display rate instead of once per tick
+    public static final boolean INTERPOLATE = getBoolean("zelda.interpolate", true);
+    
+    // Upper bound on interpolated frames per second, whatever the display reports
+    public static final int MAX_FPS = getInt("zelda.maxFps", 240);
+    
+    // Most render frames dropped in a row when the simulation falls behind
+    public static final int MAX_FRAME_SKIP = getInt("zelda.maxFrameSkip", 4);
+    
+    // Print the game loop's tick, frame and deadline counts on exit
+    public static final boolean LOOP_STATS = getBoolean("zelda.loopStats", false);
+    
+    // Tick rate while paused, on the title and file select screens or in the background
+    public static final int IDLE_TICK_RATE = getInt("zelda.idleTickRate", 10);
+    
+    // Build collision for the whole overworld in parallel at startup instead of
+    // on the first frame in each room
+    public static final boolean PRELOAD_COLLISION = getBoolean("zelda.preloadCollision", false);
+    
+    // Baked overworld collision; rebuilt when the map changes, empty to disable
+    public static final String COLLISION_ATLAS = System.getProperty("zelda.collisionAtlas", CollisionAtlas.DEFAULT_PATH).trim();
+    
+    // "tile" for the 16x16 collision grid, "pixel" for per-pixel masks of the map
+    public static final boolean PIXEL_COLLISION = "pixel".equalsIgnoreCase(System.getProperty("zelda.collision", "tile").trim());
+    
+    // Overworld map image and its size in rooms
+    public static final String MAP_PATH = System.getProperty("zelda.map", OverworldRenderer.MAP_PATH).trim();
+    public static final int WORLD_WIDTH = Math.max(1, getInt("zelda.worldWidth", 16));
+    public static final int WORLD_HEIGHT = Math.max(1, getInt("zelda.worldHeight", 8));
+    
+    // Decode only the rooms around the player instead of the whole map, for
+    // worlds too large to hold in memory. Disables the collision atlas.
+    public static final boolean STREAM_MAP = getBoolean("zelda.streamMap", false);
+    
+    // Warm the rooms next to the player's on a background thread
+    public static final boolean PREFETCH_ROOMS = getBoolean("zelda.prefetch", true);
+    
+    // Dropped items kept for reuse; more than this on screen are just collected
+    public static final int ITEM_POOL = Math.max(0, getInt("zelda.itemPool", 64));
+    
+    private GameSettings() {}
+    
+    static boolean getBoolean(String key, boolean def) {
+        String v = System.getProperty(key);
+        return v != null ? Boolean.parseBoolean(v.trim()) : def;
+    }
+    
+    static int getInt(String key, int def) {
+        String v = System.getProperty(key);
+        if (v == null) return def;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("[Settings] Bad value for " + key + ": " + v);
+            return def;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package zelda;
+
+import engine.GameLoop;
+import engine.Histogram;
+import engine.InputSource;
+import engine.KeyHandler;
+import engine.ObjectPool;
+import engine.PhaseTimer;
+import engine.RandomInput;
+import engine.ScriptedInput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Runs the simulation with no window, audio or rendering, fed by random or
+ * scripted input. Used for soak tests and for measuring tick throughput.
+ *
+ *   java -cp build/classes zelda.HeadlessRunner --ticks 216000 --speed 0 --seed 7
+ *
+ * --speed 0 runs as fast as possible, otherwise at that multiple of real time.
+ * --script FILE replays a ScriptedInput file instead of random input.
+ */
+public class HeadlessRunner {
+    private final ZeldaGame game;
+    private final KeyHandler keys;
+    private final InputSource input;
+    
+    private long tick = 0;
+    private int gamesStarted = 0;
+    private int pausedTicks = 0;
+    
+    // Random input unpauses as seldom as it pauses; resume after this long
+    private static final int MAX_PAUSE_TICKS = 120;
+    
+    private final long[] stateNanos = new long[ZeldaGame.GameState.values().length];
+    private final long[] stateTicks = new long[ZeldaGame.GameState.values().length];
+    
+    public HeadlessRunner(InputSource input, String saveDir) {
+        this.input = input;
+        this.keys = new KeyHandler();
+        
+        AudioManager audio = new AudioManager();
+        audio.setMusicEnabled(false);
+        audio.setSFXEnabled(false);
+        
+        game = new ZeldaGame(keys, new SaveManager(saveDir), audio);
+    }
+    
+    public void tick() {
+        // Random input would spend most of its time in menus; go straight to play
+        ZeldaGame.GameState before = game.getState();
+        if (before == ZeldaGame.GameState.TITLE_SCREEN || before == ZeldaGame.GameState.NAME_ENTRY) {
+            game.startNewGame("SOAK", 0);
+            // The start room's cave only opens to a player without the sword,
+            // and random input rarely finds its way back out; skip it
+            game.getPlayer().setSword(true);
+            gamesStarted++;
+            before = game.getState();
+        }
+        
+        input.apply(keys, tick);
+        if (before == ZeldaGame.GameState.PAUSED) {
+            if (++pausedTicks >= MAX_PAUSE_TICKS) keys.startPressed = true;
+        } else {
+            pausedTicks = 0;
+        }
+        
+        long start = System.nanoTime();
+        game.update();
+        stateNanos[before.ordinal()] += System.nanoTime() - start;
+        stateTicks[before.ordinal()]++;
+        tick++;
+    }
+    
+    public void runUncapped(long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+    
+    public void runPaced(long ticks, double speed) {
+        int rate = Math.max(1, (int) Math.round(60 * speed));
+        GameLoop[] loop = new GameLoop[1];
+        loop[0] = new GameLoop(new GameLoop.Callbacks() {
+            @Override
+            public void update() {
+                if (tick >= ticks) {
+                    loop[0].stop();
+                    return;
+                }
+                tick();
+            }
+            
+            @Override
+            public void render() {}
+        }, rate);
+        loop[0].run();
+    }
+    
+    private static void printPool(String name, ObjectPool<?> pool) {
+        System.out.printf("%s pool hits=%d misses=%d high=%d free=%d/%d%n", name,
+            pool.getHits(), pool.getMisses(), pool.getHighWater(), pool.getFreeCount(), pool.getCapacity());
+    }
+    
+    public void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("ticks=%d elapsed=%.2fs ticks/s=%.0f (%.1fx real time)%n",
+            tick, seconds, tick / seconds, tick / seconds / 60.0);
+        long playTicks = stateTicks[ZeldaGame.GameState.PLAYING.ordinal()];
+        System.out.printf("room transitions=%d (%.1f per minute of play) games started=%d%n", game.getRoomTransitions(),
+            playTicks > 0 ? game.getRoomTransitions() * 3600.0 / playTicks : 0.0, gamesStarted);
+        if (game.getPrefetcher() != null) {
+            System.out.printf("prefetch hits=%d misses=%d%n", game.getPrefetcher().getHits(), game.getPrefetcher().getMisses());
+        }
+        printPool("item", Item.getPool());
+        printPool("projectile buffer", ProjectileBuffer.getPool());
+        
+        for (ZeldaGame.GameState s : ZeldaGame.GameState.values()) {
+            long n = stateTicks[s.ordinal()];
+            if (n == 0) continue;
+            System.out.printf("  %-16s ticks=%-10d avg=%8.1f us%n", s, n, stateNanos[s.ordinal()] / (double) n / 1000.0);
+        }
+        
+        PhaseTimer timings = game.getTimings();
+        for (int i = 0; i <= ZeldaGame.PHASE_UPDATE; i++) {
+            Histogram h = timings.getHistogram(i);
+            if (h.getCount() == 0) continue;
+            System.out.printf("  %-16s p50=%6.1f us p99=%6.1f us max=%8.1f us%n", timings.getName(i),
+                h.percentile(50) / 1000.0, h.percentile(99) / 1000.0, h.getMax() / 1000.0);
+        }
+    }
+    
+    public ZeldaGame getGame() { return game; }
+    public long getTick() { return tick; }
+    
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        
+        long ticks = 60 * 60 * 60;
+        double speed = 0;
+        long seed = System.nanoTime();
+        String script = null;
+        
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--ticks": ticks = Long.parseLong(args[i + 1]); break;
+                case "--speed": speed = Double.parseDouble(args[i + 1]); break;
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--script": script = args[i + 1]; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        
+        InputSource input = script != null ? new ScriptedInput(script) : new RandomInput(seed);
+        File saveDir = Files.createTempDirectory("zelda-headless").toFile();
+        saveDir.deleteOnExit();
+        
+        HeadlessRunner runner = new HeadlessRunner(input, saveDir.getPath());
+        System.out.println("[Headless] " + ticks + " ticks, speed=" + (speed > 0 ? speed + "x" : "uncapped") +
+            (script != null ? ", script=" + script : ", seed=" + seed));
+        
+        long start = System.nanoTime();
+        if (speed > 0) {
+            runner.runPaced(ticks, speed);
+        } else {
+            runner.runUncapped(ticks);
+        }
+        runner.report(System.nanoTime() - start);
+        
+        for (File f : saveDir.listFiles()) f.delete();
+        System.exit(0);
+    }
+}
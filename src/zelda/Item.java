@@ -1,11 +1,14 @@
 package zelda;
 
+import engine.ObjectPool;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
-public class Item {
+public class Item implements AABB {
     public enum ItemType {
         HEART(2, 0, 0, 0),
         HEART_CONTAINER(0, 0, 0, 0),
@@ -37,19 +40,67 @@ public class Item {
     private ItemType type;
     private boolean active = true;
     
-    private int lifeTimer = 600;
+    private static final int LIFETIME = 600;
+    private int lifeTimer = LIFETIME;
     private int blinkTimer = 0;
     
     private BufferedImage sprite;
     
+    private static final Color RUPEE_GREEN_COLOR = new Color(0, 200, 0);
+    private static final Color RUPEE_BLUE_COLOR = new Color(50, 100, 255);
+    private static final Color KEY_COLOR = new Color(255, 215, 0);
+    
+    // One image per file, loaded on first use and shared by every item
+    private static final Map<String, BufferedImage> SPRITES = new HashMap<>();
+    
+    private static final ObjectPool<Item> POOL = new ObjectPool<>(GameSettings.ITEM_POOL, Item::new, Item::reset);
+    
+    private Item() {}
+    
     public Item(double x, double y, ItemType type) {
+        init(x, y, type);
+    }
+    
+    /**
+     * An item from the pool, as good as new. Hand it back with recycle once
+     * it has been removed from its room.
+     */
+    public static Item obtain(double x, double y, ItemType type) {
+        Item item = POOL.acquire();
+        item.init(x, y, type);
+        return item;
+    }
+    
+    public static void recycle(Item item) {
+        POOL.release(item);
+    }
+    
+    public static ObjectPool<Item> getPool() { return POOL; }
+    
+    private void init(double x, double y, ItemType type) {
         this.x = x;
         this.y = y;
         this.type = type;
-        loadSprite();
+        sprite = spriteFor(type);
+        width = sprite != null ? sprite.getWidth() : 8;
+        height = sprite != null ? sprite.getHeight() : 8;
+    }
+    
+    private void reset() {
+        active = true;
+        lifeTimer = LIFETIME;
+        blinkTimer = 0;
     }
     
-    private void loadSprite() {
+    private static synchronized BufferedImage spriteFor(ItemType type) {
+        String path = spritePath(type);
+        if (!SPRITES.containsKey(path)) {
+            SPRITES.put(path, loadSprite(path));
+        }
+        return SPRITES.get(path);
+    }
+    
+    private static String spritePath(ItemType type) {
         String basePath = "sprites/Objects/";
         String filename = "";
         
@@ -65,15 +116,17 @@ public class Item {
             case SWORD: filename = "Wooden Sword (Up).gif"; break;
             case BOOMERANG: filename = "Boomerang.gif"; break;
         }
-        
+        return basePath + filename;
+    }
+    
+    private static BufferedImage loadSprite(String path) {
         try {
-            File file = new File(basePath + filename);
+            File file = new File(path);
             if (file.exists()) {
-                sprite = ImageIO.read(file);
-                width = sprite.getWidth();
-                height = sprite.getHeight();
+                return ImageIO.read(file);
             }
         } catch (Exception e) {}
+        return null;
     }
     
     public void update() {
@@ -118,39 +171,43 @@ public class Item {
         active = false;
     }
     
-    public void render(Graphics2D g2) {
+    public void snapshot(RenderState state) {
         if (!active) return;
         if (blinkTimer > 0 && (blinkTimer / 4) % 2 == 0) return;
         
+        RenderState.Sprite s = state.addSprite();
+        s.x = (float)x;
+        s.y = (float)y;
+        s.width = width;
+        s.height = height;
+        
         if (sprite != null) {
-            g2.drawImage(sprite, (int)x, (int)y, null);
-        } else {
-            Color color = getItemColor();
-            g2.setColor(color);
-            
-            switch (type) {
-                case HEART:
-                case HEART_CONTAINER:
-                    g2.fillOval((int)x, (int)y, width, height);
-                    break;
-                case RUPEE_GREEN:
-                case RUPEE_BLUE:
-                case RUPEE_RED:
-                    int[] xPoints = {(int)x + 4, (int)x, (int)x + 4, (int)x + 8};
-                    int[] yPoints = {(int)y, (int)y + 6, (int)y + 12, (int)y + 6};
-                    g2.fillPolygon(xPoints, yPoints, 4);
-                    break;
-                case KEY:
-                    g2.fillRect((int)x, (int)y, 6, 12);
-                    break;
-                case BOMB:
-                    g2.fillOval((int)x, (int)y + 4, 8, 8);
-                    g2.setColor(Color.ORANGE);
-                    g2.fillRect((int)x + 3, (int)y, 2, 4);
-                    break;
-                default:
-                    g2.fillRect((int)x, (int)y, width, height);
-            }
+            s.image = sprite;
+            return;
+        }
+        
+        s.color = getItemColor();
+        switch (type) {
+            case HEART:
+            case HEART_CONTAINER:
+                s.shape = RenderState.SHAPE_OVAL;
+                break;
+            case RUPEE_GREEN:
+            case RUPEE_BLUE:
+            case RUPEE_RED:
+                s.shape = RenderState.SHAPE_DIAMOND;
+                s.height = 12;
+                break;
+            case KEY:
+                s.width = 6;
+                s.height = 12;
+                break;
+            case BOMB:
+                s.shape = RenderState.SHAPE_OVAL;
+                s.y += 4;
+                break;
+            default:
+                break;
         }
     }
     
@@ -161,11 +218,11 @@ public class Item {
             case RUPEE_RED:
                 return Color.RED;
             case RUPEE_GREEN:
-                return new Color(0, 200, 0);
+                return RUPEE_GREEN_COLOR;
             case RUPEE_BLUE:
-                return new Color(50, 100, 255);
+                return RUPEE_BLUE_COLOR;
             case KEY:
-                return new Color(255, 215, 0);
+                return KEY_COLOR;
             case BOMB:
                 return Color.DARK_GRAY;
             case CLOCK:
@@ -175,10 +232,13 @@ public class Item {
         }
     }
     
-    public Rectangle getHitbox() {
-        return new Rectangle((int)x, (int)y, width, height);
-    }
+    @Override public int getMinX() { return (int)x; }
+    @Override public int getMinY() { return (int)y; }
+    @Override public int getMaxX() { return (int)x + width; }
+    @Override public int getMaxY() { return (int)y + height; }
     
     public boolean isActive() { return active; }
     public ItemType getType() { return type; }
+    public double getX() { return x; }
+    public double getY() { return y; }
 }
@@ -1,45 +1,43 @@
 package zelda;
 
-import java.util.HashMap;
-
 public class Overworld {
-    private HashMap<String, ZeldaRoom> rooms = new HashMap<>();
+    public static final int MAP_WIDTH = GameSettings.WORLD_WIDTH;
+    public static final int MAP_HEIGHT = GameSettings.WORLD_HEIGHT;
+    
+    private final RoomGrid rooms = new RoomGrid(CollisionMap.OVERWORLD, MAP_WIDTH, MAP_HEIGHT);
     private ZeldaRoom currentRoom;
     private int currentRoomX = 7;
     private int currentRoomY = 7;
     
-    public static final int MAP_WIDTH = 16;
-    public static final int MAP_HEIGHT = 8;
-    
     public Overworld() {}
     
+    /**
+     * Rooms are created the first time they're entered, so startup doesn't
+     * grow with the size of the world
+     */
     public void initialize() {
-        for (int x = 0; x < MAP_WIDTH; x++) {
-            for (int y = 0; y < MAP_HEIGHT; y++) {
-                String key = x + "," + y;
-                rooms.put(key, new ZeldaRoom(x, y));
-            }
-        }
-        
-        setCurrentRoom(7, 7);
+        setCurrentRoom(Math.min(7, MAP_WIDTH - 1), Math.min(7, MAP_HEIGHT - 1));
     }
     
     public boolean hasRoom(int x, int y) {
-        return x >= 0 && x < MAP_WIDTH && y >= 0 && y < MAP_HEIGHT;
+        return rooms.contains(x, y);
+    }
+    
+    public boolean hasVisited(int x, int y) {
+        return rooms.isDormant(x, y);
     }
     
+    /**
+     * The room at (x, y) if the player is in it, otherwise null
+     */
     public ZeldaRoom getRoom(int x, int y) {
-        String key = x + "," + y;
-        if (!rooms.containsKey(key)) {
-            rooms.put(key, new ZeldaRoom(x, y));
-        }
-        return rooms.get(key);
+        return rooms.get(x, y);
     }
     
     public void setCurrentRoom(int x, int y) {
         currentRoomX = x;
         currentRoomY = y;
-        currentRoom = getRoom(x, y);
+        currentRoom = rooms.enter(x, y);
     }
     
     public ZeldaRoom getCurrentRoom() {
@@ -48,4 +46,5 @@ public class Overworld {
     
     public int getCurrentRoomX() { return currentRoomX; }
     public int getCurrentRoomY() { return currentRoomY; }
+    public int getVisitedRoomCount() { return rooms.getVisitedCount(); }
 }
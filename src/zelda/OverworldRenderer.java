@@ -3,41 +3,141 @@ package zelda;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Draws overworld rooms and answers ground tests for collision. The map PNG
+ * is decoded once, cut into a deduplicated Tileset and then dropped; room
+ * images are composed from tiles on demand and only the most recently used
+ * few are kept.
+ *
+ * In streaming mode the map is never decoded as a whole: each room is read
+ * from the file on its own with a source region and collision is sampled
+ * from that room image, so memory stays flat however large the map is.
+ */
 public class OverworldRenderer {
-    private static final int MAP_COLS = 16;
-    private static final int MAP_ROWS = 8;
     public static final int DISPLAY_WIDTH = 256;
     public static final int DISPLAY_HEIGHT = 176;
+    public static final String MAP_PATH = "sprites/Worlds/entire_worldmap_single_image.png";
     
+    // Current room, its neighbours and a little slack
+    public static final int ROOM_CACHE_SIZE = 12;
+    
+    private final int mapCols;
+    private final int mapRows;
     private int sourceRoomWidth = 256;
     private int sourceRoomHeight = 168;
+    private int mapWidth, mapHeight;
+    
+    private Tileset tileset;
+    private ImageReader reader;
+    private TerrainEdits edits;
+    private final LinkedHashMap<Integer, BufferedImage> roomCache = newRoomCache();
     
-    private BufferedImage overworldMap;
-    private BufferedImage[][] roomCache;
+    // Rooms already scaled to display size, so drawing one is a straight copy
+    private final LinkedHashMap<Integer, BufferedImage> displayCache = newRoomCache();
     private boolean mapLoaded = false;
 
     private static final int GROUND_COLOR = 0xfcd8a8;
+    private static final Color GROUND = new Color(GROUND_COLOR);
+    
+    // Flat colours for edited tiles, indexed by TileType ordinal
+    private static final Color[] TERRAIN_COLORS = new Color[TileType.values().length];
+    static {
+        TERRAIN_COLORS[TileType.FLOOR.ordinal()] = GROUND;
+        TERRAIN_COLORS[TileType.WALL.ordinal()] = new Color(0xc84c0c);
+        TERRAIN_COLORS[TileType.TREE.ordinal()] = new Color(0x00a800);
+        TERRAIN_COLORS[TileType.WATER.ordinal()] = new Color(0x2038ec);
+    }
     private static final int COLOR_TOLERANCE = 40;
     
+    private static LinkedHashMap<Integer, BufferedImage> newRoomCache() {
+        return new LinkedHashMap<Integer, BufferedImage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+                return size() > ROOM_CACHE_SIZE;
+            }
+        };
+    }
+    
     public OverworldRenderer() {
-        roomCache = new BufferedImage[MAP_COLS][MAP_ROWS];
-        loadOverworldMap();
+        this(GameSettings.MAP_PATH, GameSettings.WORLD_WIDTH, GameSettings.WORLD_HEIGHT, GameSettings.STREAM_MAP);
+    }
+    
+    public OverworldRenderer(String mapPath) {
+        this(mapPath, GameSettings.WORLD_WIDTH, GameSettings.WORLD_HEIGHT, false);
+    }
+    
+    public OverworldRenderer(String mapPath, int mapCols, int mapRows, boolean streaming) {
+        this.mapCols = mapCols;
+        this.mapRows = mapRows;
+        if (streaming) {
+            openStream(mapPath);
+        } else {
+            loadOverworldMap(mapPath);
+        }
+    }
+    
+    /**
+     * Reads only the image header; rooms are decoded one at a time later
+     */
+    private void openStream(String mapPath) {
+        File mapFile = new File(mapPath);
+        if (!mapFile.exists()) {
+            System.err.println("[Map] File not found!");
+            return;
+        }
+        
+        try {
+            ImageInputStream in = ImageIO.createImageInputStream(mapFile);
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                if (in != null) in.close();
+                System.err.println("[Map] No reader for " + mapPath);
+                return;
+            }
+            
+            reader = readers.next();
+            reader.setInput(in, true, true);
+            mapWidth = reader.getWidth(0);
+            mapHeight = reader.getHeight(0);
+            sourceRoomWidth = mapWidth / mapCols;
+            sourceRoomHeight = mapHeight / mapRows;
+            mapLoaded = true;
+            
+            System.out.println("[Map] Streaming: " + mapWidth + "x" + mapHeight + " (" + mapCols + "x" + mapRows +
+                " rooms) -> Room: " + sourceRoomWidth + "x" + sourceRoomHeight);
+        } catch (IOException e) {
+            System.err.println("[Map] Load failed: " + e.getMessage());
+        }
     }
     
-    private void loadOverworldMap() {
+    private void loadOverworldMap(String mapPath) {
         try {
-            File mapFile = new File("sprites/Worlds/entire_worldmap_single_image.png");
+            File mapFile = new File(mapPath);
             if (mapFile.exists()) {
-                overworldMap = ImageIO.read(mapFile);
+                BufferedImage overworldMap = ImageIO.read(mapFile);
+                
+                long start = System.nanoTime();
+                tileset = Tileset.extract(overworldMap);
                 mapLoaded = true;
                 
-                sourceRoomWidth = overworldMap.getWidth() / MAP_COLS;
-                sourceRoomHeight = overworldMap.getHeight() / MAP_ROWS;
+                mapWidth = overworldMap.getWidth();
+                mapHeight = overworldMap.getHeight();
+                sourceRoomWidth = mapWidth / mapCols;
+                sourceRoomHeight = mapHeight / mapRows;
                 
                 System.out.println("[Map] Loaded: " + overworldMap.getWidth() + "x" + overworldMap.getHeight() +
                     " -> Room: " + sourceRoomWidth + "x" + sourceRoomHeight);
+                System.out.printf("[Map] Tileset: %d unique of %d tiles (%.1f ms)%n", tileset.getTileCount(),
+                    tileset.getCols() * tileset.getRows(), (System.nanoTime() - start) / 1e6);
             } else {
                 System.err.println("[Map] File not found!");
             }
@@ -46,25 +146,172 @@ public class OverworldRenderer {
         }
     }
     
+    private boolean isOnMap(int roomX, int roomY) {
+        return mapLoaded && roomX >= 0 && roomX < mapCols && roomY >= 0 && roomY < mapRows &&
+            (roomX + 1) * sourceRoomWidth <= mapWidth && (roomY + 1) * sourceRoomHeight <= mapHeight;
+    }
+    
+    /**
+     * The room at source size. Images are built outside the cache lock, so a
+     * background thread preparing one never holds up a frame that only needs
+     * a cached room.
+     */
     public BufferedImage getRoomImage(int roomX, int roomY) {
-        if (roomX < 0 || roomX >= MAP_COLS || roomY < 0 || roomY >= MAP_ROWS) return null;
-        if (roomCache[roomX][roomY] != null) return roomCache[roomX][roomY];
-        if (overworldMap == null) return null;
+        if (!isOnMap(roomX, roomY)) return null;
         
-        int sx = roomX * sourceRoomWidth;
-        int sy = roomY * sourceRoomHeight;
+        Integer key = roomY * mapCols + roomX;
+        synchronized (roomCache) {
+            BufferedImage img = roomCache.get(key);
+            if (img != null) return img;
+        }
         
-        if (sx + sourceRoomWidth <= overworldMap.getWidth() && sy + sourceRoomHeight <= overworldMap.getHeight()) {
-            roomCache[roomX][roomY] = overworldMap.getSubimage(sx, sy, sourceRoomWidth, sourceRoomHeight);
+        BufferedImage img = new BufferedImage(sourceRoomWidth, sourceRoomHeight, BufferedImage.TYPE_INT_RGB);
+        if (reader != null) {
+            if (!readRoom(roomX, roomY, img)) return null;
+        } else {
+            tileset.copyRegion(roomX * sourceRoomWidth, roomY * sourceRoomHeight, sourceRoomWidth, sourceRoomHeight, img);
+        }
+        return cache(roomCache, key, img);
+    }
+    
+    /**
+     * The room scaled to DISPLAY_WIDTH x DISPLAY_HEIGHT
+     */
+    public BufferedImage getDisplayImage(int roomX, int roomY) {
+        if (!isOnMap(roomX, roomY)) return null;
+        
+        Integer key = roomY * mapCols + roomX;
+        synchronized (displayCache) {
+            BufferedImage img = displayCache.get(key);
+            if (img != null) return img;
         }
         
-        return roomCache[roomX][roomY];
+        int revision = getEditRevision();
+        BufferedImage src = getRoomImage(roomX, roomY);
+        if (src == null) return null;
+        BufferedImage img = new BufferedImage(DISPLAY_WIDTH, DISPLAY_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.drawImage(src, 0, 0, DISPLAY_WIDTH, DISPLAY_HEIGHT, null);
+        if (edits != null && edits.hasEdits(CollisionMap.OVERWORLD, roomX, roomY)) {
+            for (int ty = 0; ty < CollisionMap.TILES_Y; ty++) {
+                for (int tx = 0; tx < CollisionMap.TILES_X; tx++) {
+                    paintTile(g, roomX, roomY, tx, ty);
+                }
+            }
+        }
+        g.dispose();
+        return cacheDisplayImage(key, img, revision);
+    }
+    
+    public void setTerrainEdits(TerrainEdits edits) {
+        this.edits = edits;
+    }
+    
+    /**
+     * Revision of the terrain edits; a display image composed before a
+     * later edit is never cached
+     */
+    public int getEditRevision() {
+        return edits != null ? edits.getRevision() : 0;
+    }
+    
+    /**
+     * Redraws one edited tile of the room's cached display image, if it is
+     * cached; otherwise the edit is drawn when the room is next composed.
+     * Drawn under the cache lock, which renderRoom holds while copying the
+     * image, so a frame never shows half a tile.
+     */
+    public void invalidateTile(int roomX, int roomY, int tileX, int tileY) {
+        synchronized (displayCache) {
+            BufferedImage img = displayCache.get(roomY * mapCols + roomX);
+            if (img == null) return;
+            
+            Graphics2D g = img.createGraphics();
+            paintTile(g, roomX, roomY, tileX, tileY);
+            g.dispose();
+        }
+    }
+    
+    /**
+     * Drops a room's cached display image so it is composed again
+     */
+    public void invalidateRoom(int roomX, int roomY) {
+        synchronized (displayCache) {
+            displayCache.remove(roomY * mapCols + roomX);
+        }
+    }
+    
+    private void paintTile(Graphics2D g, int roomX, int roomY, int tileX, int tileY) {
+        TileType edit = edits != null ? edits.get(CollisionMap.OVERWORLD, roomX, roomY, tileX, tileY) : null;
+        if (edit == null || TERRAIN_COLORS[edit.ordinal()] == null) return;
+        g.setColor(TERRAIN_COLORS[edit.ordinal()]);
+        g.fillRect(tileX * 16, tileY * 16, 16, 16);
+    }
+    
+    /**
+     * Puts back a display image prepared earlier, in case it was evicted,
+     * unless the terrain has been edited since the given revision
+     */
+    void cacheDisplayImage(int roomX, int roomY, BufferedImage img, int revision) {
+        if (img != null && isOnMap(roomX, roomY)) {
+            cacheDisplayImage(roomY * mapCols + roomX, img, revision);
+        }
+    }
+    
+    // The revision is checked under the lock that invalidateRoom takes, so an
+    // image can't be cached after the edit that made it stale was invalidated
+    private BufferedImage cacheDisplayImage(Integer key, BufferedImage img, int revision) {
+        synchronized (displayCache) {
+            if (revision != getEditRevision()) return img;
+            return cache(displayCache, key, img);
+        }
+    }
+    
+    /**
+     * First one in wins, so two threads building the same room agree on it
+     */
+    private static BufferedImage cache(LinkedHashMap<Integer, BufferedImage> cache, Integer key, BufferedImage img) {
+        synchronized (cache) {
+            BufferedImage existing = cache.get(key);
+            if (existing != null) return existing;
+            cache.put(key, img);
+            return img;
+        }
+    }
+    
+    /**
+     * Decodes just this room's region of the map file into dst. PNG rows
+     * before the region still have to be inflated, but none of them are kept.
+     */
+    private boolean readRoom(int roomX, int roomY, BufferedImage dst) {
+        synchronized (reader) {
+            return readRegion(roomX, roomY, dst);
+        }
+    }
+    
+    private boolean readRegion(int roomX, int roomY, BufferedImage dst) {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(roomX * sourceRoomWidth, roomY * sourceRoomHeight,
+            sourceRoomWidth, sourceRoomHeight));
+        try {
+            BufferedImage region = reader.read(0, param);
+            Graphics2D g = dst.createGraphics();
+            g.drawImage(region, 0, 0, null);
+            g.dispose();
+            return true;
+        } catch (IOException e) {
+            System.err.println("[Map] Room " + roomX + "," + roomY + " read failed: " + e.getMessage());
+            return false;
+        }
     }
     
     public void renderRoom(Graphics2D g2, int roomX, int roomY) {
-        BufferedImage roomImg = getRoomImage(roomX, roomY);
+        BufferedImage roomImg = getDisplayImage(roomX, roomY);
         if (roomImg != null) {
-            g2.drawImage(roomImg, 0, 0, DISPLAY_WIDTH, DISPLAY_HEIGHT, null);
+            // See invalidateTile
+            synchronized (displayCache) {
+                g2.drawImage(roomImg, 0, 0, null);
+            }
         } else {
             g2.setColor(new Color(124, 252, 0));
             g2.fillRect(0, 0, DISPLAY_WIDTH, DISPLAY_HEIGHT);
@@ -74,17 +321,54 @@ public class OverworldRenderer {
     }
     
     public boolean isGroundColor(int roomX, int roomY, int displayX, int displayY) {
-        BufferedImage roomImg = getRoomImage(roomX, roomY);
-        if (roomImg == null) return true;
-        
+        if (!isOnMap(roomX, roomY)) return true;
+        return isGroundColor(reader != null ? getRoomImage(roomX, roomY) : null, roomX, roomY, displayX, displayY);
+    }
+    
+    /**
+     * Ground test against the tileset, or against the room image when
+     * streaming (callers fetch it once per room)
+     */
+    private boolean isGroundColor(BufferedImage room, int roomX, int roomY, int displayX, int displayY) {
         int srcX = (int)(displayX * (double)sourceRoomWidth / DISPLAY_WIDTH);
         int srcY = (int)(displayY * (double)sourceRoomHeight / DISPLAY_HEIGHT);
         
         srcX = Math.max(0, Math.min(srcX, sourceRoomWidth - 1));
         srcY = Math.max(0, Math.min(srcY, sourceRoomHeight - 1));
         
-        int rgb = roomImg.getRGB(srcX, srcY) & 0xFFFFFF;
+        if (tileset == null) {
+            return room == null || isGround(room.getRGB(srcX, srcY));
+        }
+        return tileset.isGround(roomX * sourceRoomWidth + srcX, roomY * sourceRoomHeight + srcY);
+    }
+    
+    private TileType terrainAt(BufferedImage room, int roomX, int roomY, int displayX, int displayY) {
+        int srcX = Math.min((int)(displayX * (double)sourceRoomWidth / DISPLAY_WIDTH), sourceRoomWidth - 1);
+        int srcY = Math.min((int)(displayY * (double)sourceRoomHeight / DISPLAY_HEIGHT), sourceRoomHeight - 1);
+        
+        if (tileset == null) {
+            return room == null ? TileType.FLOOR : terrainOf(room.getRGB(srcX, srcY));
+        }
+        return tileset.getTerrain(roomX * sourceRoomWidth + srcX, roomY * sourceRoomHeight + srcY);
+    }
+    
+    /**
+     * Terrain class of a map colour: ground, green bushes and trees (which
+     * burn), blue water, and anything else counts as rock wall (which bombs
+     * break)
+     */
+    static TileType terrainOf(int rgb) {
+        if (isGround(rgb)) return TileType.FLOOR;
         
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        if (g > r && g > b) return TileType.TREE;
+        if (b > r && b > g) return TileType.WATER;
+        return TileType.WALL;
+    }
+    
+    static boolean isGround(int rgb) {
         int r = (rgb >> 16) & 0xFF;
         int g = (rgb >> 8) & 0xFF;
         int b = rgb & 0xFF;
@@ -98,13 +382,17 @@ public class OverworldRenderer {
                Math.abs(b - gb) < COLOR_TOLERANCE;
     }
     
+    /**
+     * Samples the terrain at the centre of each display tile. Reads only the tileset's
+     * precomputed ground masks (or a cached room image when streaming), so
+     * rooms can be generated from several threads at once.
+     */
     public int[][] generateCollisionGrid(int roomX, int roomY) {
         int tilesX = 16;
         int tilesY = 11;
         int[][] grid = new int[tilesX][tilesY];
         
-        BufferedImage roomImg = getRoomImage(roomX, roomY);
-        if (roomImg == null) {
+        if (!isOnMap(roomX, roomY)) {
             for (int x = 0; x < tilesX; x++) {
                 for (int y = 0; y < tilesY; y++) {
                     grid[x][y] = (x == 0 || x == tilesX-1 || y == 0 || y == tilesY-1) ? 1 : 0;
@@ -113,16 +401,37 @@ public class OverworldRenderer {
             return grid;
         }
         
+        BufferedImage room = reader != null ? getRoomImage(roomX, roomY) : null;
         for (int tx = 0; tx < tilesX; tx++) {
             for (int ty = 0; ty < tilesY; ty++) {
-                int centerX = tx * 16 + 8;
-                int centerY = ty * 16 + 8;
-                grid[tx][ty] = isGroundColor(roomX, roomY, centerX, centerY) ? 0 : 1;
+                grid[tx][ty] = terrainAt(room, roomX, roomY, tx * 16 + 8, ty * 16 + 8).ordinal();
             }
         }
         
         return grid;
     }
     
+    /**
+     * One bit per display pixel, set where the map isn't ground, packed
+     * LSB-first into rows of maskWords longs. Null for rooms off the map.
+     * Like generateCollisionGrid this is safe to call from several threads.
+     */
+    public long[] generateCollisionMask(int roomX, int roomY, int maskWords) {
+        if (!isOnMap(roomX, roomY)) return null;
+        
+        BufferedImage room = reader != null ? getRoomImage(roomX, roomY) : null;
+        long[] mask = new long[DISPLAY_HEIGHT * maskWords];
+        for (int y = 0; y < DISPLAY_HEIGHT; y++) {
+            for (int x = 0; x < DISPLAY_WIDTH; x++) {
+                if (!isGroundColor(room, roomX, roomY, x, y)) {
+                    mask[y * maskWords + (x >>> 6)] |= 1L << (x & 63);
+                }
+            }
+        }
+        return mask;
+    }
+    
+    public Tileset getTileset() { return tileset; }
     public boolean isMapLoaded() { return mapLoaded; }
+    public boolean isStreaming() { return reader != null; }
 }
@@ -0,0 +1,150 @@
+package zelda;
+
+import engine.ObjectPool;
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * All live projectiles of a room, kept in parallel arrays rather than one
+ * object each. A projectile's look (size and colour) comes from its style.
+ * One pass moves, culls, tests and compacts them, keeping their order, and
+ * the same arrays are read to draw them. Buffers are pooled between rooms,
+ * so the arrays grown in one room are reused by the next.
+ */
+public class ProjectileBuffer {
+    public static final int STYLE_PLAYER_SHOT = 0;
+    public static final int STYLE_ENEMY_SHOT = 1;
+    public static final int STYLE_FIREBALL = 2;
+    public static final int STYLE_ROCK = 3;
+    public static final int STYLE_SPEAR = 4;
+    
+    private static final int[] STYLE_WIDTH = { 8, 8, 10, 6, 4 };
+    private static final int[] STYLE_HEIGHT = { 8, 8, 10, 6, 12 };
+    private static final Color[] STYLE_COLOR = {
+        Color.GREEN, Color.ORANGE, Color.ORANGE, new Color(139, 90, 43), new Color(139, 69, 19)
+    };
+    
+    private static final int LIFETIME = 120;
+    
+    // The live room's buffer and the one being left
+    private static final ObjectPool<ProjectileBuffer> POOL = new ObjectPool<>(2, ProjectileBuffer::new, ProjectileBuffer::clear);
+    
+    private int count;
+    private double[] x = new double[16];
+    private double[] y = new double[16];
+    private double[] vx = new double[16];
+    private double[] vy = new double[16];
+    private double[] prevX = new double[16];
+    private double[] prevY = new double[16];
+    private int[] lifetime = new int[16];
+    private boolean[] playerOwned = new boolean[16];
+    private byte[] style = new byte[16];
+    
+    public static ProjectileBuffer obtain() {
+        return POOL.acquire();
+    }
+    
+    public static void recycle(ProjectileBuffer buffer) {
+        POOL.release(buffer);
+    }
+    
+    public static ObjectPool<ProjectileBuffer> getPool() { return POOL; }
+    
+    public void emit(double x, double y, double vx, double vy, boolean playerOwned, int style) {
+        if (count == this.x.length) grow();
+        int i = count++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.prevX[i] = x;
+        this.prevY[i] = y;
+        this.lifetime[i] = LIFETIME;
+        this.playerOwned[i] = playerOwned;
+        this.style[i] = (byte) style;
+    }
+    
+    private void grow() {
+        int size = x.length * 2;
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        vx = Arrays.copyOf(vx, size);
+        vy = Arrays.copyOf(vy, size);
+        prevX = Arrays.copyOf(prevX, size);
+        prevY = Arrays.copyOf(prevY, size);
+        lifetime = Arrays.copyOf(lifetime, size);
+        playerOwned = Arrays.copyOf(playerOwned, size);
+        style = Arrays.copyOf(style, size);
+    }
+    
+    /**
+     * Moves every projectile and drops the ones that expire, leave the room,
+     * hit a wall or hit something. Enemy shots hurt the player; the player's
+     * hit the first enemy in the room's list that they overlap.
+     */
+    public void update(ZeldaRoom room, ZeldaPlayer player) {
+        int px0 = player.getMinX(), py0 = player.getMinY();
+        int px1 = player.getMaxX(), py1 = player.getMaxY();
+        
+        int live = 0;
+        for (int i = 0; i < count; i++) {
+            double nx = x[i] + vx[i];
+            double ny = y[i] + vy[i];
+            if (--lifetime[i] <= 0) continue;
+            if (nx < -8 || nx > 264 || ny < -8 || ny > 184) continue;
+            
+            int bx = (int) nx, by = (int) ny;
+            int w = STYLE_WIDTH[style[i]], h = STYLE_HEIGHT[style[i]];
+            if (!room.isAreaWalkable(bx, by, w, h)) continue;
+            
+            if (playerOwned[i]) {
+                if (room.hitEnemy(bx, by, w, h)) continue;
+            } else if (bx < px1 && px0 < bx + w && by < py1 && py0 < by + h) {
+                player.damage(1);
+                continue;
+            }
+            
+            x[live] = nx;
+            y[live] = ny;
+            if (live != i) {
+                vx[live] = vx[i];
+                vy[live] = vy[i];
+                prevX[live] = prevX[i];
+                prevY[live] = prevY[i];
+                lifetime[live] = lifetime[i];
+                playerOwned[live] = playerOwned[i];
+                style[live] = style[i];
+            }
+            live++;
+        }
+        count = live;
+    }
+    
+    /**
+     * See ZeldaPlayer.beginTick
+     */
+    public void beginTick() {
+        System.arraycopy(x, 0, prevX, 0, count);
+        System.arraycopy(y, 0, prevY, 0, count);
+    }
+    
+    public void snapshot(RenderState state) {
+        for (int i = 0; i < count; i++) {
+            RenderState.Sprite s = state.addSprite();
+            s.x = (float) x[i];
+            s.y = (float) y[i];
+            s.setMotion(prevX[i], prevY[i], x[i], y[i]);
+            s.width = STYLE_WIDTH[style[i]];
+            s.height = STYLE_HEIGHT[style[i]];
+            s.shape = RenderState.SHAPE_OVAL;
+            s.color = STYLE_COLOR[style[i]];
+            s.outline = Color.WHITE;
+        }
+    }
+    
+    public void clear() {
+        count = 0;
+    }
+    
+    public int size() { return count; }
+}
@@ -0,0 +1,238 @@
+package zelda;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything needed to draw one frame, captured by the simulation at the end
+ * of a tick. Buffers are pooled and reused; once published a state is only
+ * read by the renderer until the simulation gets it back.
+ */
+public class RenderState {
+    public static final int SHAPE_RECT = 0;
+    public static final int SHAPE_OVAL = 1;
+    public static final int SHAPE_DIAMOND = 2;
+    
+    // Anything that moves further than this in one tick was placed, not moved,
+    // and is drawn at its new position without interpolating.
+    private static final float MAX_INTERPOLATED_STEP = 24;
+    
+    public static class Sprite {
+        public float x, y;
+        public float deltaX, deltaY;
+        public int width, height;
+        public Image image;
+        public boolean flipX;
+        
+        public int shape;
+        public Color color;
+        public Color outline;
+        public Color overlay;
+        public float bar;
+        
+        private final int[] polyX = new int[4];
+        private final int[] polyY = new int[4];
+        
+        void reset() {
+            x = 0;
+            y = 0;
+            deltaX = 0;
+            deltaY = 0;
+            width = 16;
+            height = 16;
+            image = null;
+            flipX = false;
+            shape = SHAPE_RECT;
+            color = null;
+            outline = null;
+            overlay = null;
+            bar = -1;
+        }
+        
+        public void setMotion(double fromX, double fromY, double toX, double toY) {
+            float mx = (float)(toX - fromX);
+            float my = (float)(toY - fromY);
+            if (Math.abs(mx) > MAX_INTERPOLATED_STEP || Math.abs(my) > MAX_INTERPOLATED_STEP) {
+                deltaX = 0;
+                deltaY = 0;
+            } else {
+                deltaX = mx;
+                deltaY = my;
+            }
+        }
+        
+        public void draw(Graphics2D g2, float alpha) {
+            float back = 1 - alpha;
+            int dx = (int)(x - deltaX * back);
+            int dy = (int)(y - deltaY * back);
+            
+            if (image != null) {
+                if (flipX) {
+                    g2.drawImage(image, dx + width, dy, -width, height, null);
+                } else {
+                    g2.drawImage(image, dx, dy, width, height, null);
+                }
+            } else if (color != null) {
+                g2.setColor(color);
+                switch (shape) {
+                    case SHAPE_OVAL:
+                        g2.fillOval(dx, dy, width, height);
+                        if (outline != null) {
+                            g2.setColor(outline);
+                            g2.drawOval(dx, dy, width, height);
+                        }
+                        break;
+                    case SHAPE_DIAMOND:
+                        polyX[0] = dx + width / 2; polyY[0] = dy;
+                        polyX[1] = dx;             polyY[1] = dy + height / 2;
+                        polyX[2] = dx + width / 2; polyY[2] = dy + height;
+                        polyX[3] = dx + width;     polyY[3] = dy + height / 2;
+                        g2.fillPolygon(polyX, polyY, 4);
+                        break;
+                    default:
+                        g2.fillRect(dx, dy, width, height);
+                }
+            }
+            
+            if (overlay != null) {
+                g2.setColor(overlay);
+                g2.fillRect(dx, dy, width, height);
+            }
+            
+            if (bar >= 0) {
+                g2.setColor(Color.BLACK);
+                g2.fillRect(dx, dy - 6, width, 4);
+                g2.setColor(Color.RED);
+                g2.fillRect(dx, dy - 6, (int)(bar * width), 4);
+            }
+        }
+    }
+    
+    public ZeldaGame.GameState state;
+    public boolean idle;
+    public boolean moving;
+    public long publishNanos;
+    public boolean showTimings;
+    
+    // Title screen
+    public TitleScreen.ScreenState titleState;
+    public int waterfallFrame;
+    public boolean promptVisible;
+    public boolean heartBlink;
+    public int scrollY;
+    public int selectedSlot;
+    public String enteredName = "";
+    public int charSelectX, charSelectY;
+    public final String[] slotNames = new String[3];
+    
+    // Playfield
+    public boolean hasRoom;
+    public int roomX, roomY;
+    public int transitionTimer;
+    public boolean caveSwordTaken;
+    public int terrainRevision;
+    
+    // HUD
+    public boolean hasPlayer;
+    public int health, maxHealth;
+    public int rupees, keys, bombs;
+    public boolean hasSword;
+    
+    private final List<Sprite> spritePool = new ArrayList<>();
+    private int spriteCount = 0;
+    
+    public void clear() {
+        state = null;
+        idle = false;
+        moving = false;
+        hasRoom = false;
+        hasPlayer = false;
+        spriteCount = 0;
+    }
+    
+    /**
+     * True if any sprite moved over the last tick, i.e. if drawing this
+     * frame at different interpolation alphas gives different images
+     */
+    public boolean hasMotion() {
+        for (int i = 0; i < spriteCount; i++) {
+            Sprite s = spritePool.get(i);
+            if (s.deltaX != 0 || s.deltaY != 0) return true;
+        }
+        return false;
+    }
+    
+    public Sprite addSprite() {
+        if (spriteCount == spritePool.size()) {
+            spritePool.add(new Sprite());
+        }
+        Sprite s = spritePool.get(spriteCount++);
+        s.reset();
+        return s;
+    }
+    
+    public int getSpriteCount() { return spriteCount; }
+    public Sprite getSprite(int i) { return spritePool.get(i); }
+    
+    /**
+     * Hash of everything that affects the drawn image, used to spot frames
+     * that would come out identical to the last one
+     */
+    public long contentHash() {
+        long h = 17;
+        h = mix(h, state != null ? state.ordinal() : -1);
+        h = mix(h, showTimings ? 1 : 0);
+        
+        if (state == ZeldaGame.GameState.TITLE_SCREEN || state == ZeldaGame.GameState.NAME_ENTRY) {
+            h = mix(h, titleState != null ? titleState.ordinal() : -1);
+            h = mix(h, waterfallFrame);
+            h = mix(h, promptVisible ? 1 : 0);
+            h = mix(h, heartBlink ? 1 : 0);
+            h = mix(h, scrollY);
+            h = mix(h, selectedSlot);
+            h = mix(h, enteredName.hashCode());
+            h = mix(h, charSelectX);
+            h = mix(h, charSelectY);
+            for (String name : slotNames) {
+                h = mix(h, name != null ? name.hashCode() : 0);
+            }
+        }
+        
+        h = mix(h, hasRoom ? roomX * 64 + roomY : -1);
+        h = mix(h, transitionTimer);
+        h = mix(h, caveSwordTaken ? 1 : 0);
+        h = mix(h, terrainRevision);
+        h = mix(h, hasPlayer ? 1 : 0);
+        h = mix(h, health);
+        h = mix(h, maxHealth);
+        h = mix(h, rupees);
+        h = mix(h, keys);
+        h = mix(h, bombs);
+        h = mix(h, hasSword ? 1 : 0);
+        
+        h = mix(h, spriteCount);
+        for (int i = 0; i < spriteCount; i++) {
+            Sprite s = spritePool.get(i);
+            h = mix(h, Float.floatToIntBits(s.x));
+            h = mix(h, Float.floatToIntBits(s.y));
+            h = mix(h, s.width * 4096 + s.height);
+            h = mix(h, System.identityHashCode(s.image));
+            h = mix(h, (s.flipX ? 8 : 0) | s.shape);
+            h = mix(h, s.color != null ? s.color.getRGB() : 0);
+            h = mix(h, s.overlay != null ? s.overlay.getRGB() : 0);
+            h = mix(h, Float.floatToIntBits(s.bar));
+        }
+        return h;
+    }
+    
+    private static long mix(long h, int v) {
+        return (h ^ v) * 0x100000001b3L;
+    }
+    
+    public void renderSprites(Graphics2D g2, float alpha) {
+        for (int i = 0; i < spriteCount; i++) {
+            spritePool.get(i).draw(g2, alpha);
+        }
+    }
+}
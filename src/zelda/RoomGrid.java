@@ -0,0 +1,80 @@
+package zelda;
+
+/**
+ * Rooms of one world in a dense array indexed by coordinates. Only the room
+ * the player is in is kept live; a room is created the first time it's
+ * entered and packed into a DormantRoom when the player leaves, so memory
+ * follows the rooms actually visited rather than the size of the world.
+ */
+class RoomGrid {
+    private final int world;
+    private final int width, height;
+    private final DormantRoom[] dormant;
+    
+    private ZeldaRoom current;
+    private int currentIndex = -1;
+    
+    RoomGrid(int world, int width, int height) {
+        this.world = world;
+        this.width = width;
+        this.height = height;
+        this.dormant = new DormantRoom[width * height];
+    }
+    
+    boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+    
+    /**
+     * Makes (x, y) the live room, putting the one the player left to sleep
+     */
+    ZeldaRoom enter(int x, int y) {
+        if (!contains(x, y)) return null;
+        
+        int index = y * width + x;
+        if (index == currentIndex) return current;
+        
+        if (current != null) {
+            dormant[currentIndex] = current.sleep();
+            current.release();
+        }
+        current = wake(x, y);
+        currentIndex = index;
+        return current;
+    }
+    
+    /**
+     * The live room at (x, y), or null unless the player is there. Other
+     * rooms only exist as their dormant state; see isDormant.
+     */
+    ZeldaRoom get(int x, int y) {
+        if (!contains(x, y)) return null;
+        return y * width + x == currentIndex ? current : null;
+    }
+    
+    private ZeldaRoom wake(int x, int y) {
+        ZeldaRoom room = new ZeldaRoom(world, x, y);
+        DormantRoom state = dormant[y * width + x];
+        if (state != null) {
+            room.wake(state);
+        }
+        return room;
+    }
+    
+    /**
+     * True once the player has been in the room and left it
+     */
+    boolean isDormant(int x, int y) {
+        return contains(x, y) && dormant[y * width + x] != null;
+    }
+    
+    ZeldaRoom getCurrent() { return current; }
+    
+    int getVisitedCount() {
+        int n = current != null ? 1 : 0;
+        for (int i = 0; i < dormant.length; i++) {
+            if (dormant[i] != null && i != currentIndex) n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,161 @@
+package zelda;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Prepares the overworld rooms next to the player's on a low-priority
+ * background thread: the display image, the collision grid (and pixel mask)
+ * and the pre-rolled enemy list. When the player walks into a prepared room
+ * the game thread only hands those over.
+ *
+ * Collision is built in a CollisionMap owned by the prefetch thread and
+ * copied across on entry, so the game's map is only ever touched by the
+ * game thread. That map is started over whenever the terrain is edited.
+ */
+public class RoomPrefetcher {
+    private static final int[] NEIGHBOUR_DX = { 0, 1, 0, -1 };
+    private static final int[] NEIGHBOUR_DY = { -1, 0, 1, 0 };
+    
+    private static class Prepared {
+        BufferedImage image;
+        int revision;
+        byte[] tiles;
+        long[] mask;
+        List<ZeldaEnemy> spawns;
+    }
+    
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "room-prefetch");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    
+    // Touched only by the prefetch thread
+    private CollisionMap scratch;
+    private int scratchRevision;
+    
+    private final Map<Integer, Future<Prepared>> pending = new HashMap<>();
+    private int hits, misses;
+    
+    /**
+     * Hands over whatever was prepared for the room just entered and starts
+     * on its neighbours. Call from the game thread after the room changes.
+     * Only rooms that were being prepared count as hits or misses, so the
+     * first room of a game counts as neither.
+     */
+    public void enter(Overworld overworld, ZeldaRoom room) {
+        if (room == null) return;
+        
+        Future<Prepared> future = pending.remove(key(room.getRoomX(), room.getRoomY()));
+        if (future != null) {
+            if (future.isDone()) {
+                install(room, future);
+                hits++;
+            } else {
+                future.cancel(false);
+                misses++;
+            }
+        }
+        
+        prefetchAround(overworld, room.getRoomX(), room.getRoomY());
+    }
+    
+    private void prefetchAround(Overworld overworld, int roomX, int roomY) {
+        Map<Integer, Future<Prepared>> keep = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            int x = roomX + NEIGHBOUR_DX[i];
+            int y = roomY + NEIGHBOUR_DY[i];
+            if (!overworld.hasRoom(x, y)) continue;
+            
+            Integer key = key(x, y);
+            Future<Prepared> future = pending.remove(key);
+            if (future == null) {
+                boolean rollSpawns = !overworld.hasVisited(x, y);
+                future = executor.submit(() -> prepare(x, y, rollSpawns));
+            }
+            keep.put(key, future);
+        }
+        
+        // Rooms no longer next to the player aren't worth finishing
+        for (Iterator<Future<Prepared>> it = pending.values().iterator(); it.hasNext(); ) {
+            it.next().cancel(false);
+            it.remove();
+        }
+        pending.putAll(keep);
+    }
+    
+    /**
+     * Drops everything prepared so far, for when the terrain edits change
+     * under it (a new or loaded game)
+     */
+    public void reset() {
+        for (Future<Prepared> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+        executor.execute(() -> scratch = null);
+    }
+    
+    private Prepared prepare(int roomX, int roomY, boolean rollSpawns) {
+        OverworldRenderer renderer = ZeldaRoom.getRenderer();
+        TerrainEdits edits = ZeldaRoom.getTerrain();
+        int revision = edits.getRevision();
+        
+        // Rooms built before an edit may be stale; rebuild them all rather
+        // than track which ones the edits touched
+        if (scratch == null || scratchRevision != revision) {
+            scratch = new CollisionMap();
+            scratch.setRenderer(renderer);
+            scratch.setPixelPrecise(GameSettings.PIXEL_COLLISION);
+            scratch.setTerrainEdits(edits);
+            scratchRevision = revision;
+        }
+        
+        Prepared p = new Prepared();
+        p.revision = revision;
+        p.image = renderer.getDisplayImage(roomX, roomY);
+        p.tiles = scratch.getRoomTiles(CollisionMap.OVERWORLD, roomX, roomY);
+        if (rollSpawns) {
+            p.spawns = ZeldaRoom.rollSpawns(scratch, CollisionMap.OVERWORLD, roomX, roomY);
+        }
+        if (GameSettings.PIXEL_COLLISION) {
+            p.mask = scratch.getRoomMask(CollisionMap.OVERWORLD, roomX, roomY);
+        }
+        return p;
+    }
+    
+    private void install(ZeldaRoom room, Future<Prepared> future) {
+        Prepared p;
+        try {
+            p = future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            System.err.println("[Prefetch] Room " + room.getRoomX() + "," + room.getRoomY() + " failed: " + e);
+            return;
+        }
+        
+        ZeldaRoom.getRenderer().cacheDisplayImage(room.getRoomX(), room.getRoomY(), p.image, p.revision);
+        // Collision prepared before a later edit is left for the game to build
+        if (p.revision == ZeldaRoom.getTerrain().getRevision()) {
+            ZeldaRoom.getCollisionMap().installRoom(CollisionMap.OVERWORLD, room.getRoomX(), room.getRoomY(), p.tiles, p.mask);
+        }
+        if (p.spawns != null) {
+            room.setPreparedSpawns(p.spawns);
+        }
+    }
+    
+    private static Integer key(int x, int y) {
+        return y * Overworld.MAP_WIDTH + x;
+    }
+    
+    public int getHits() { return hits; }
+    public int getMisses() { return misses; }
+}
@@ -4,7 +4,9 @@ import java.io.*;
 import java.util.Properties;
 
 public class SaveManager {
-    private static final String SAVE_DIR = "saves/";
+    private static final String DEFAULT_SAVE_DIR = "saves/";
+    
+    private final String saveDir;
     
     public static class SaveData {
         public String playerName;
@@ -19,14 +21,20 @@ public class SaveManager {
         public int roomY;
         public boolean hasSword;
         public long playTime;
+        public String terrain = "";
         
         public SaveData() {}
     }
     
     public SaveManager() {
-        File saveDir = new File(SAVE_DIR);
-        if (!saveDir.exists()) {
-            saveDir.mkdirs();
+        this(DEFAULT_SAVE_DIR);
+    }
+    
+    public SaveManager(String saveDir) {
+        this.saveDir = saveDir.endsWith("/") ? saveDir : saveDir + "/";
+        File dir = new File(this.saveDir);
+        if (!dir.exists()) {
+            dir.mkdirs();
         }
     }
     
@@ -49,6 +57,10 @@ public class SaveManager {
     }
     
     public void saveGame(int slot, ZeldaPlayer player, int roomX, int roomY) {
+        saveGame(slot, player, roomX, roomY, null);
+    }
+    
+    public void saveGame(int slot, ZeldaPlayer player, int roomX, int roomY, TerrainEdits terrain) {
         SaveData data = new SaveData();
         data.playerName = player.getName();
         data.health = player.getHealth();
@@ -61,6 +73,7 @@ public class SaveManager {
         data.roomX = roomX;
         data.roomY = roomY;
         data.hasSword = player.hasSword();
+        data.terrain = terrain != null ? terrain.encode() : "";
         
         writeSaveFile(slot, data);
     }
@@ -79,8 +92,11 @@ public class SaveManager {
         props.setProperty("roomY", String.valueOf(data.roomY));
         props.setProperty("hasSword", String.valueOf(data.hasSword));
         props.setProperty("playTime", String.valueOf(data.playTime));
+        if (data.terrain != null && !data.terrain.isEmpty()) {
+            props.setProperty("terrain", data.terrain);
+        }
         
-        try (FileOutputStream fos = new FileOutputStream(SAVE_DIR + "save" + slot + ".dat")) {
+        try (FileOutputStream fos = new FileOutputStream(saveDir + "save" + slot + ".dat")) {
             props.store(fos, "Zelda Save File");
         } catch (IOException e) {
             System.err.println("Failed to save game: " + e.getMessage());
@@ -88,7 +104,7 @@ public class SaveManager {
     }
     
     public SaveData loadGame(int slot) {
-        File saveFile = new File(SAVE_DIR + "save" + slot + ".dat");
+        File saveFile = new File(saveDir + "save" + slot + ".dat");
         if (!saveFile.exists()) {
             return null;
         }
@@ -110,6 +126,7 @@ public class SaveManager {
             data.roomY = Integer.parseInt(props.getProperty("roomY", "7"));
             data.hasSword = Boolean.parseBoolean(props.getProperty("hasSword", "false"));
             data.playTime = Long.parseLong(props.getProperty("playTime", "0"));
+            data.terrain = props.getProperty("terrain", "");
             
             return data;
         } catch (IOException | NumberFormatException e) {
@@ -119,13 +136,13 @@ public class SaveManager {
     }
     
     public void deleteSave(int slot) {
-        File saveFile = new File(SAVE_DIR + "save" + slot + ".dat");
+        File saveFile = new File(saveDir + "save" + slot + ".dat");
         if (saveFile.exists()) {
             saveFile.delete();
         }
     }
     
     public boolean saveExists(int slot) {
-        return new File(SAVE_DIR + "save" + slot + ".dat").exists();
+        return new File(saveDir + "save" + slot + ".dat").exists();
     }
 }
@@ -0,0 +1,186 @@
+package zelda;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over a room for broadphase overlap tests. Boxes are added in
+ * order and numbered from 0, then bucketed into cells with a counting sort.
+ * A query returns the numbers of the boxes that overlap the query box, in
+ * ascending order, so callers can keep list-order semantics such as
+ * first-hit-wins. Rebuilt once per tick; nothing is allocated once the
+ * arrays have grown to fit.
+ */
+public class SpatialGrid {
+    private final int cellShift;
+    private final int cols, rows;
+    private final int[] cellStart;
+    
+    private int count;
+    private int[] boxes = new int[4 * 64];      // x0, y0, x1, y1, inclusive
+    private int[] entries = new int[64];
+    
+    private int[] results = new int[16];
+    private int resultCount;
+    
+    /**
+     * @param cellSize a power of two
+     */
+    public SpatialGrid(int width, int height, int cellSize) {
+        if (Integer.bitCount(cellSize) != 1) throw new IllegalArgumentException("cell size " + cellSize);
+        this.cellShift = Integer.numberOfTrailingZeros(cellSize);
+        this.cols = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.cellStart = new int[cols * rows + 1];
+    }
+    
+    public void clear() {
+        count = 0;
+    }
+    
+    /**
+     * Adds a box and returns its number. Boxes reaching off the grid are
+     * filed under the edge cells; empty boxes overlap nothing, as with
+     * AABB.overlaps.
+     */
+    public int add(int x, int y, int width, int height) {
+        if ((count + 1) * 4 > boxes.length) {
+            boxes = Arrays.copyOf(boxes, boxes.length * 2);
+        }
+        int b = count * 4;
+        boxes[b] = x;
+        boxes[b + 1] = y;
+        boxes[b + 2] = width > 0 ? x + width - 1 : x - 1;
+        boxes[b + 3] = height > 0 ? y + height - 1 : y - 1;
+        return count++;
+    }
+    
+    public int add(AABB box) {
+        return add(box.getMinX(), box.getMinY(), box.getMaxX() - box.getMinX(), box.getMaxY() - box.getMinY());
+    }
+    
+    public void build() {
+        Arrays.fill(cellStart, 0);
+        int entryCount = 0;
+        for (int i = 0; i < count; i++) {
+            int b = i * 4;
+            if (boxes[b] > boxes[b + 2] || boxes[b + 1] > boxes[b + 3]) continue;
+            int c0 = col(boxes[b]), c1 = col(boxes[b + 2]);
+            for (int r = row(boxes[b + 1]), r1 = row(boxes[b + 3]); r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    cellStart[r * cols + c + 1]++;
+                    entryCount++;
+                }
+            }
+        }
+        for (int cell = 0; cell < cols * rows; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        if (entries.length < entryCount) {
+            entries = new int[Math.max(entryCount, entries.length * 2)];
+        }
+        
+        // Each cell's start is used as its insertion cursor...
+        for (int i = 0; i < count; i++) {
+            int b = i * 4;
+            if (boxes[b] > boxes[b + 2] || boxes[b + 1] > boxes[b + 3]) continue;
+            int c0 = col(boxes[b]), c1 = col(boxes[b + 2]);
+            for (int r = row(boxes[b + 1]), r1 = row(boxes[b + 3]); r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    entries[cellStart[r * cols + c]++] = i;
+                }
+            }
+        }
+        // ...which leaves it at the next cell's start, so shift them back
+        for (int cell = cols * rows; cell > 0; cell--) {
+            cellStart[cell] = cellStart[cell - 1];
+        }
+        cellStart[0] = 0;
+    }
+    
+    /**
+     * Finds the boxes overlapping the given one; read them with
+     * getResult(0 .. count - 1). Valid until the next query.
+     */
+    public int query(int x, int y, int width, int height) {
+        int qx0 = x, qy0 = y;
+        int qx1 = x + width - 1;
+        int qy1 = y + height - 1;
+        resultCount = 0;
+        if (width <= 0 || height <= 0) return 0;
+        
+        int c0 = col(qx0), c1 = col(qx1);
+        int r0 = row(qy0), r1 = row(qy1);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                    int i = entries[e];
+                    int b = i * 4;
+                    if (boxes[b] > qx1 || boxes[b + 2] < qx0 || boxes[b + 1] > qy1 || boxes[b + 3] < qy0) continue;
+                    
+                    // A pair shares several cells when both span more than one;
+                    // count it only in the cell holding the overlap's top-left
+                    if ((c > c0 && col(boxes[b]) != c) || (r > r0 && row(boxes[b + 1]) != r)) continue;
+                    
+                    if (resultCount == results.length) {
+                        results = Arrays.copyOf(results, results.length * 2);
+                    }
+                    results[resultCount++] = i;
+                }
+            }
+        }
+        
+        if (resultCount > 1) {
+            Arrays.sort(results, 0, resultCount);
+        }
+        return resultCount;
+    }
+    
+    public int query(AABB box) {
+        return query(box.getMinX(), box.getMinY(), box.getMaxX() - box.getMinX(), box.getMaxY() - box.getMinY());
+    }
+    
+    /**
+     * The lowest-numbered box overlapping the given one, or -1: the hit a
+     * plain loop over the boxes would have stopped at
+     */
+    public int first(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return -1;
+        int qx0 = x, qy0 = y;
+        int qx1 = x + width - 1;
+        int qy1 = y + height - 1;
+        int best = Integer.MAX_VALUE;
+        
+        int c0 = col(qx0), c1 = col(qx1);
+        for (int r = row(qy0), r1 = row(qy1); r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                // Runs are in ascending order, so the first overlap in a cell is its lowest
+                for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                    int i = entries[e];
+                    if (i >= best) break;
+                    int b = i * 4;
+                    if (boxes[b] > qx1 || boxes[b + 2] < qx0 || boxes[b + 1] > qy1 || boxes[b + 3] < qy0) continue;
+                    best = i;
+                    break;
+                }
+            }
+        }
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+    
+    public int first(AABB box) {
+        return first(box.getMinX(), box.getMinY(), box.getMaxX() - box.getMinX(), box.getMaxY() - box.getMinY());
+    }
+    
+    public int getResult(int i) { return results[i]; }
+    public int size() { return count; }
+    
+    private int col(int x) {
+        return Math.max(0, Math.min(cols - 1, x >> cellShift));
+    }
+    
+    private int row(int y) {
+        return Math.max(0, Math.min(rows - 1, y >> cellShift));
+    }
+}
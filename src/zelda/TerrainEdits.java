@@ -0,0 +1,129 @@
+package zelda;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tiles changed during play (bombed walls, burnt bushes), laid over the
+ * terrain that comes from the map. Kept per room as a small array of new
+ * tile ids, so a room with no edits costs nothing. Written by the game
+ * thread; safe to read from the prefetcher, since a room's array is never
+ * changed once published: each edit publishes a new copy.
+ */
+public class TerrainEdits {
+    private static final byte NONE = -1;
+    private static final int TILES_X = CollisionMap.TILES_X;
+    private static final int TILES_PER_ROOM = CollisionMap.TILES_X * CollisionMap.TILES_Y;
+    
+    public interface RoomVisitor {
+        void visit(int world, int roomX, int roomY);
+    }
+    
+    private final Map<Long, byte[]> rooms = new ConcurrentHashMap<>();
+    private volatile int revision;
+    
+    private static long key(int world, int roomX, int roomY) {
+        return ((long) world << 40) | ((long) roomY << 20) | roomX;
+    }
+    
+    public void set(int world, int roomX, int roomY, int tileX, int tileY, TileType type) {
+        long key = key(world, roomX, roomY);
+        byte[] old = rooms.get(key);
+        byte[] room;
+        if (old != null) {
+            room = old.clone();
+        } else {
+            room = new byte[TILES_PER_ROOM];
+            Arrays.fill(room, NONE);
+        }
+        room[tileY * TILES_X + tileX] = (byte) type.ordinal();
+        rooms.put(key, room);
+        revision++;
+    }
+    
+    /**
+     * The edited tile, or null if the map's own tile stands
+     */
+    public TileType get(int world, int roomX, int roomY, int tileX, int tileY) {
+        byte[] room = rooms.get(key(world, roomX, roomY));
+        if (room == null || room[tileY * TILES_X + tileX] == NONE) return null;
+        return TileType.fromId(room[tileY * TILES_X + tileX]);
+    }
+    
+    /**
+     * Writes the room's edits over tiles laid out as CollisionMap stores them
+     */
+    boolean applyTo(int world, int roomX, int roomY, byte[] tiles, int offset) {
+        byte[] room = rooms.get(key(world, roomX, roomY));
+        if (room == null) return false;
+        for (int i = 0; i < TILES_PER_ROOM; i++) {
+            if (room[i] != NONE) tiles[offset + i] = room[i];
+        }
+        return true;
+    }
+    
+    boolean hasEdits(int world, int roomX, int roomY) {
+        return rooms.containsKey(key(world, roomX, roomY));
+    }
+    
+    public void forEachRoom(RoomVisitor visitor) {
+        for (long key : rooms.keySet()) {
+            visitor.visit((int) (key >>> 40), (int) (key & 0xFFFFF), (int) ((key >>> 20) & 0xFFFFF));
+        }
+    }
+    
+    public void clear() {
+        rooms.clear();
+        revision++;
+    }
+    
+    public boolean isEmpty() { return rooms.isEmpty(); }
+    public int getRevision() { return revision; }
+    
+    /**
+     * One "world,roomX,roomY,tileX,tileY,TYPE" entry per edit, separated by ';'
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Long, byte[]> e : rooms.entrySet()) {
+            long key = e.getKey();
+            byte[] room = e.getValue();
+            for (int i = 0; i < TILES_PER_ROOM; i++) {
+                if (room[i] == NONE) continue;
+                if (sb.length() > 0) sb.append(';');
+                sb.append(key >>> 40).append(',').append(key & 0xFFFFF).append(',').append((key >>> 20) & 0xFFFFF)
+                  .append(',').append(i % TILES_X).append(',').append(i / TILES_X)
+                  .append(',').append(TileType.fromId(room[i]).name());
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Replaces every edit with those in an encode() string
+     */
+    public void load(String s) {
+        rooms.clear();
+        revision++;
+        if (s == null || s.isEmpty()) return;
+        
+        for (String entry : s.split(";")) {
+            String[] f = entry.split(",");
+            try {
+                int world = Integer.parseInt(f[0]);
+                int roomX = Integer.parseInt(f[1]);
+                int roomY = Integer.parseInt(f[2]);
+                int tileX = Integer.parseInt(f[3]);
+                int tileY = Integer.parseInt(f[4]);
+                if (world < 0 || world >= CollisionMap.MAX_WORLDS || roomX < 0 || roomX > 0xFFFFF || roomY < 0 || roomY > 0xFFFFF ||
+                    tileX < 0 || tileX >= TILES_X || tileY < 0 || tileY >= CollisionMap.TILES_Y) {
+                    throw new IllegalArgumentException();
+                }
+                set(world, roomX, roomY, tileX, tileY, TileType.valueOf(f[5]));
+            } catch (RuntimeException e) {
+                System.err.println("[Terrain] Skipping bad edit: " + entry);
+            }
+        }
+    }
+}
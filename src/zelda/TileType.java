@@ -12,6 +12,8 @@ public enum TileType {
     DOCK(true, false),
     BRIDGE(true, false);
     
+    private static final TileType[] VALUES = values();
+    
     public final boolean walkable;
     public final boolean interactive;
     
@@ -21,8 +23,8 @@ public enum TileType {
     }
     
     public static TileType fromId(int id) {
-        if (id >= 0 && id < values().length) {
-            return values()[id];
+        if (id >= 0 && id < VALUES.length) {
+            return VALUES[id];
         }
         return WALL;
     }
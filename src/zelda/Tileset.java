@@ -0,0 +1,190 @@
+package zelda;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The overworld map cut into 16x16 tiles on its own grid, with repeats
+ * folded together: a tileset of unique tiles plus a tilemap of indices.
+ * Classification is done once per unique tile, per pixel: a ground bitmask
+ * and a terrain class. Rooms don't line up with the tile grid, so collision
+ * samples need the pixel's class rather than one for the whole tile.
+ */
+public class Tileset {
+    public static final int TILE_SIZE = 16;
+    private static final int TILE_PIXELS = TILE_SIZE * TILE_SIZE;
+    private static final int GROUND_WORDS = TILE_PIXELS / 64;
+    
+    private final int width, height;
+    private final int cols, rows;
+    private final int[] tilemap;
+    
+    private final int tileCount;
+    private final int[] pixels;
+    private final long[] ground;
+    private final byte[] pixelClass;
+    
+    private Tileset(int width, int height, int cols, int rows, int[] tilemap, int tileCount, int[] pixels) {
+        this.width = width;
+        this.height = height;
+        this.cols = cols;
+        this.rows = rows;
+        this.tilemap = tilemap;
+        this.tileCount = tileCount;
+        this.pixels = pixels;
+        this.ground = new long[tileCount * GROUND_WORDS];
+        this.pixelClass = new byte[tileCount * TILE_PIXELS];
+        
+        for (int t = 0; t < tileCount; t++) {
+            classify(t);
+        }
+    }
+    
+    private void classify(int tile) {
+        int base = tile * TILE_PIXELS;
+        for (int i = 0; i < TILE_PIXELS; i++) {
+            if (OverworldRenderer.isGround(pixels[base + i])) {
+                ground[tile * GROUND_WORDS + (i >>> 6)] |= 1L << (i & 63);
+            }
+            pixelClass[base + i] = (byte) OverworldRenderer.terrainOf(pixels[base + i]).ordinal();
+        }
+    }
+    
+    /**
+     * Cuts the image into tiles and folds identical ones together. Edge tiles
+     * that run past the image are padded with black.
+     */
+    public static Tileset extract(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int cols = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        int[] tilemap = new int[cols * rows];
+        
+        HashMap<Long, Integer> byHash = new HashMap<>();
+        int[] unique = new int[64 * TILE_PIXELS];
+        int count = 0;
+        
+        Raster raster = image.getRaster();
+        int bands = raster.getNumBands();
+        boolean direct = bands >= 3 && !(image.getColorModel() instanceof IndexColorModel);
+        int[] strip = new int[width * TILE_SIZE * (direct ? bands : 1)];
+        int[] tile = new int[TILE_PIXELS];
+        
+        for (int row = 0; row < rows; row++) {
+            int y0 = row * TILE_SIZE;
+            int stripHeight = Math.min(TILE_SIZE, height - y0);
+            if (direct) {
+                raster.getPixels(0, y0, width, stripHeight, strip);
+            } else {
+                image.getRGB(0, y0, width, stripHeight, strip, 0, width);
+            }
+            
+            for (int col = 0; col < cols; col++) {
+                int x0 = col * TILE_SIZE;
+                long hash = 0xcbf29ce484222325L;
+                for (int y = 0; y < TILE_SIZE; y++) {
+                    for (int x = 0; x < TILE_SIZE; x++) {
+                        int rgb = 0;
+                        if (y < stripHeight && x0 + x < width) {
+                            int p = y * width + x0 + x;
+                            if (direct) {
+                                p *= bands;
+                                rgb = (strip[p] << 16) | (strip[p + 1] << 8) | strip[p + 2];
+                            } else {
+                                rgb = strip[p] & 0xFFFFFF;
+                            }
+                        }
+                        tile[y * TILE_SIZE + x] = rgb;
+                        hash = (hash ^ rgb) * 0x100000001b3L;
+                    }
+                }
+                
+                Integer match = byHash.get(hash);
+                if (match != null && sameTile(unique, match, tile)) {
+                    tilemap[row * cols + col] = match;
+                    continue;
+                }
+                
+                if ((count + 1) * TILE_PIXELS > unique.length) {
+                    unique = Arrays.copyOf(unique, unique.length * 2);
+                }
+                System.arraycopy(tile, 0, unique, count * TILE_PIXELS, TILE_PIXELS);
+                if (match == null) byHash.put(hash, count);
+                tilemap[row * cols + col] = count++;
+            }
+        }
+        
+        return new Tileset(width, height, cols, rows, tilemap, count,
+            Arrays.copyOf(unique, count * TILE_PIXELS));
+    }
+    
+    private static boolean sameTile(int[] unique, int index, int[] tile) {
+        int base = index * TILE_PIXELS;
+        for (int i = 0; i < TILE_PIXELS; i++) {
+            if (unique[base + i] != tile[i]) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Ground test for a pixel of the original image, from the tile's
+     * precomputed mask. Safe to call from any thread.
+     */
+    public boolean isGround(int x, int y) {
+        int tile = tilemap[(y / TILE_SIZE) * cols + x / TILE_SIZE];
+        int bit = (y % TILE_SIZE) * TILE_SIZE + x % TILE_SIZE;
+        return (ground[tile * GROUND_WORDS + (bit >>> 6)] & (1L << (bit & 63))) != 0;
+    }
+    
+    /**
+     * Terrain class of a pixel of the original image, from the tile's
+     * precomputed classes. Safe to call from any thread.
+     */
+    public TileType getTerrain(int x, int y) {
+        int tile = tilemap[(y / TILE_SIZE) * cols + x / TILE_SIZE];
+        return TileType.fromId(pixelClass[tile * TILE_PIXELS + (y % TILE_SIZE) * TILE_SIZE + x % TILE_SIZE]);
+    }
+    
+    /**
+     * Colour of a pixel of the original image
+     */
+    public int getRGB(int x, int y) {
+        int tile = tilemap[(y / TILE_SIZE) * cols + x / TILE_SIZE];
+        return pixels[tile * TILE_PIXELS + (y % TILE_SIZE) * TILE_SIZE + x % TILE_SIZE];
+    }
+    
+    /**
+     * Draws the given region of the original image into dst at (0, 0)
+     */
+    public void copyRegion(int sx, int sy, int w, int h, BufferedImage dst) {
+        int[] row = new int[TILE_SIZE];
+        
+        for (int row0 = sy / TILE_SIZE; row0 * TILE_SIZE < sy + h; row0++) {
+            for (int col = sx / TILE_SIZE; col * TILE_SIZE < sx + w; col++) {
+                int base = tilemap[row0 * cols + col] * TILE_PIXELS;
+                
+                int tx0 = Math.max(sx, col * TILE_SIZE);
+                int tx1 = Math.min(sx + w, (col + 1) * TILE_SIZE);
+                int ty0 = Math.max(sy, row0 * TILE_SIZE);
+                int ty1 = Math.min(sy + h, (row0 + 1) * TILE_SIZE);
+                
+                for (int y = ty0; y < ty1; y++) {
+                    int src = base + (y - row0 * TILE_SIZE) * TILE_SIZE + (tx0 - col * TILE_SIZE);
+                    System.arraycopy(pixels, src, row, 0, tx1 - tx0);
+                    dst.setRGB(tx0 - sx, y - sy, tx1 - tx0, 1, row, 0, TILE_SIZE);
+                }
+            }
+        }
+    }
+    
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getCols() { return cols; }
+    public int getRows() { return rows; }
+    public int getTileCount() { return tileCount; }
+    public int getTileAt(int col, int row) { return tilemap[row * cols + col]; }
+}
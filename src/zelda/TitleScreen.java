@@ -10,7 +10,7 @@ public class TitleScreen {
     private ZeldaGame game;
     private KeyHandler keyHandler;
     
-    private enum ScreenState {
+    enum ScreenState {
         INTRO,
         TITLE,
         FILE_SELECT,
@@ -21,7 +21,10 @@ public class TitleScreen {
     private ScreenState state = ScreenState.INTRO;
     private int selectedSlot = 0;
     private String enteredName = "";
-    private int cursorBlink = 0;
+    // Blinks run off the clock, not the tick count, so they keep time while
+    // the menus tick at the idle rate
+    private static final long BLINK_FRAME_NANOS = 1_000_000_000L / 60;
+    private final long blinkOrigin = System.nanoTime();
     private boolean keyReleased = true;
     private int introTimer = 0;
     
@@ -75,9 +78,14 @@ public class TitleScreen {
         }
     }
     
+    /**
+     * True on the screens that only blink until a key is pressed
+     */
+    public boolean isWaitingForInput() {
+        return state == ScreenState.TITLE || state == ScreenState.FILE_SELECT;
+    }
+    
     public void update() {
-        cursorBlink++;
-        
         switch (state) {
             case INTRO:
                 updateIntro();
@@ -220,36 +228,52 @@ public class TitleScreen {
         }
     }
     
-    public void render(Graphics2D g2) {
+    public void snapshot(RenderState v) {
+        v.titleState = state;
+        long blink = (System.nanoTime() - blinkOrigin) / BLINK_FRAME_NANOS;
+        v.waterfallFrame = (int) ((blink / 4) % 8);
+        v.promptVisible = (blink / 30) % 2 == 0;
+        v.heartBlink = (blink / 16) % 2 == 0;
+        v.scrollY = scrollY;
+        v.selectedSlot = selectedSlot;
+        v.enteredName = enteredName;
+        v.charSelectX = charSelectX;
+        v.charSelectY = charSelectY;
+        for (int i = 0; i < 3; i++) {
+            v.slotNames[i] = saveSlots[i] != null ? saveSlots[i].playerName : null;
+        }
+    }
+    
+    public void render(Graphics2D g2, RenderState v) {
         g2.setColor(Color.BLACK);
         g2.fillRect(0, 0, 256, 240);
         
-        switch (state) {
+        switch (v.titleState) {
             case INTRO:
-                renderIntro(g2);
+                renderIntro(g2, v);
                 break;
             case TITLE:
-                renderTitle(g2);
+                renderTitle(g2, v);
                 break;
             case FILE_SELECT:
-                renderFileSelect(g2);
+                renderFileSelect(g2, v);
                 break;
             case NAME_ENTRY:
-                renderNameEntry(g2);
+                renderNameEntry(g2, v);
                 break;
             case ELIMINATION:
                 break;
         }
     }
     
-    private void renderIntro(Graphics2D g2) {
+    private void renderIntro(Graphics2D g2, RenderState v) {
         g2.setColor(Color.BLACK);
         g2.fillRect(0, 0, 256, 240);
         
         g2.setColor(new Color(188, 140, 76));
         g2.setFont(new Font("Monospaced", Font.PLAIN, 8));
         
-        int textStartY = 240 - scrollY;
+        int textStartY = 240 - v.scrollY;
         for (int i = 0; i < STORY_TEXT.length; i++) {
             int textY = textStartY + i * 16;
             if (textY > -16 && textY < 240) {
@@ -263,10 +287,10 @@ public class TitleScreen {
         g2.fillRect(0, 0, 256, 48);
         g2.fillRect(0, 200, 256, 40);
         
-        renderWaterfall(g2);
+        renderWaterfall(g2, v);
     }
     
-    private void renderWaterfall(Graphics2D g2) {
+    private void renderWaterfall(Graphics2D g2, RenderState v) {
         int wfX = 88;
         int wfY = 120;
         int wfWidth = 80;
@@ -275,7 +299,7 @@ public class TitleScreen {
         g2.setColor(new Color(60, 88, 36));
         g2.fillRect(wfX - 20, wfY - 8, wfWidth + 40, wfHeight + 16);
         
-        int animOffset = (cursorBlink / 4) % 8;
+        int animOffset = v.waterfallFrame;
         g2.setColor(new Color(92, 148, 252));
         for (int y = wfY; y < wfY + wfHeight; y += 4) {
             int rowOffset = ((y + animOffset) / 4) % 2 == 0 ? 2 : -2;
@@ -294,17 +318,17 @@ public class TitleScreen {
         }
     }
     
-    private void renderTitle(Graphics2D g2) {
-        renderWaterfall(g2);
+    private void renderTitle(Graphics2D g2, RenderState v) {
+        renderWaterfall(g2, v);
         
-        if ((cursorBlink / 30) % 2 == 0) {
+        if (v.promptVisible) {
             drawPixelText(g2, "PUSH START BUTTON", 56, 175, new Color(188, 140, 76));
         }
         
         drawPixelText(g2, "@ 1986 NINTENDO", 72, 208, new Color(188, 140, 76));
     }
     
-    private void renderFileSelect(Graphics2D g2) {
+    private void renderFileSelect(Graphics2D g2, RenderState v) {
         g2.setColor(new Color(0, 0, 0));
         g2.fillRect(0, 0, 256, 240);
         
@@ -314,35 +338,35 @@ public class TitleScreen {
             int y = 56 + i * 40;
             
             g2.setColor(new Color(180, 56, 0));
-            drawHeart(g2, 24, y, i == selectedSlot && selectedSlot < 3);
+            drawHeart(g2, v, 24, y, i == v.selectedSlot && v.selectedSlot < 3);
             
             String slotLabel = String.valueOf(i + 1);
             drawPixelText(g2, slotLabel, 48, y + 4, Color.WHITE);
             
-            if (saveSlots[i] != null) {
-                drawPixelText(g2, saveSlots[i].playerName, 72, y + 4, Color.WHITE);
+            if (v.slotNames[i] != null) {
+                drawPixelText(g2, v.slotNames[i], 72, y + 4, Color.WHITE);
             } else {
                 drawPixelText(g2, "--------", 72, y + 4, new Color(100, 100, 100));
             }
         }
         
         int elimY = 190;
-        drawHeart(g2, 24, elimY, selectedSlot == 3);
+        drawHeart(g2, v, 24, elimY, v.selectedSlot == 3);
         drawPixelText(g2, "ELIMINATION MODE", 48, elimY + 4, new Color(180, 56, 0));
     }
     
-    private void renderNameEntry(Graphics2D g2) {
+    private void renderNameEntry(Graphics2D g2, RenderState v) {
         g2.setColor(Color.BLACK);
         g2.fillRect(0, 0, 256, 240);
         
         drawPixelText(g2, "REGISTER YOUR NAME", 56, 24, new Color(180, 56, 0));
         
         g2.setColor(new Color(180, 56, 0));
-        drawHeart(g2, 24, 48, true);
+        drawHeart(g2, v, 24, 48, true);
         
         g2.setColor(Color.WHITE);
-        String displayName = enteredName;
-        for (int i = enteredName.length(); i < 8; i++) {
+        String displayName = v.enteredName;
+        for (int i = v.enteredName.length(); i < 8; i++) {
             displayName += "_";
         }
         drawPixelText(g2, displayName, 48, 52, Color.WHITE);
@@ -360,10 +384,10 @@ public class TitleScreen {
                     int x = startX + col * charWidth;
                     int y = startY + row * charHeight;
                     
-                    boolean selected = (row == charSelectY && col == charSelectX);
+                    boolean selected = (row == v.charSelectY && col == v.charSelectX);
                     Color color = selected ? new Color(180, 56, 0) : Color.WHITE;
                     
-                    if (selected && charSelectY < 3) {
+                    if (selected && v.charSelectY < 3) {
                         g2.setColor(Color.WHITE);
                         g2.fillRect(x - 2, y - 10, 12, 12);
                         color = Color.BLACK;
@@ -375,7 +399,7 @@ public class TitleScreen {
         }
         
         int registerY = startY + 3 * charHeight + 16;
-        boolean registerSelected = (charSelectY == 3);
+        boolean registerSelected = (v.charSelectY == 3);
         if (registerSelected) {
             g2.setColor(Color.WHITE);
             g2.fillRect(startX - 4, registerY - 10, 80, 14);
@@ -385,8 +409,8 @@ public class TitleScreen {
         drawPixelText(g2, "Z:ADD X:DEL START:OK", 40, 210, new Color(100, 100, 100));
     }
     
-    private void drawHeart(Graphics2D g2, int x, int y, boolean filled) {
-        if (filled && (cursorBlink / 16) % 2 == 0) {
+    private void drawHeart(Graphics2D g2, RenderState v, int x, int y, boolean filled) {
+        if (filled && v.heartBlink) {
             g2.setColor(new Color(180, 56, 0));
         } else if (filled) {
             g2.setColor(new Color(252, 152, 56));
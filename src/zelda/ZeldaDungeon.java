@@ -1,12 +1,14 @@
 package zelda;
 
-import java.util.HashMap;
-
 public class ZeldaDungeon {
+    private static final int MAX_WIDTH = 8;
+    private static final int MAX_HEIGHT = 8;
+    
     private String dungeonName;
     private int dungeonNumber;
     
-    private HashMap<String, ZeldaRoom> rooms = new HashMap<>();
+    private final RoomGrid rooms;
+    private final boolean[] layout = new boolean[MAX_WIDTH * MAX_HEIGHT];
     private ZeldaRoom currentRoom;
     private int currentRoomX = 0;
     private int currentRoomY = 0;
@@ -19,40 +21,41 @@ public class ZeldaDungeon {
     public ZeldaDungeon(int number, String name) {
         this.dungeonNumber = number;
         this.dungeonName = name;
+        this.rooms = new RoomGrid(number, MAX_WIDTH, MAX_HEIGHT);
     }
     
+    /**
+     * Lays out which rooms exist; they're created as the player reaches them
+     */
     public void initialize() {
-        rooms.put("0,0", createDungeonRoom(0, 0));
-        rooms.put("1,0", createDungeonRoom(1, 0));
-        rooms.put("0,1", createDungeonRoom(0, 1));
-        rooms.put("1,1", createDungeonRoom(1, 1));
-        rooms.put("2,0", createBossRoom(2, 0));
+        addRoom(0, 0);
+        addRoom(1, 0);
+        addRoom(0, 1);
+        addRoom(1, 1);
+        addRoom(2, 0); // boss
         
         setCurrentRoom(0, 0);
     }
     
-    private ZeldaRoom createDungeonRoom(int x, int y) {
-        ZeldaRoom room = new ZeldaRoom(x, y);
-        return room;
-    }
-    
-    private ZeldaRoom createBossRoom(int x, int y) {
-        ZeldaRoom room = new ZeldaRoom(x, y);
-        return room;
+    private void addRoom(int x, int y) {
+        layout[y * MAX_WIDTH + x] = true;
     }
     
     public boolean hasRoom(int x, int y) {
-        return rooms.containsKey(x + "," + y);
+        return rooms.contains(x, y) && layout[y * MAX_WIDTH + x];
     }
     
+    /**
+     * The room at (x, y) if the player is in it, otherwise null
+     */
     public ZeldaRoom getRoom(int x, int y) {
-        return rooms.get(x + "," + y);
+        return hasRoom(x, y) ? rooms.get(x, y) : null;
     }
     
     public void setCurrentRoom(int x, int y) {
         currentRoomX = x;
         currentRoomY = y;
-        currentRoom = getRoom(x, y);
+        currentRoom = hasRoom(x, y) ? rooms.enter(x, y) : null;
     }
     
     public ZeldaRoom getCurrentRoom() { return currentRoom; }
@@ -4,11 +4,11 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.File;
-import java.util.List;
 
-public abstract class ZeldaEnemy {
+public abstract class ZeldaEnemy implements AABB {
     protected double x, y;
     protected double oldX, oldY;
+    protected double prevX, prevY;
     protected int width = 14;
     protected int height = 14;
     protected double speed = 0.8;
@@ -41,6 +41,8 @@ public abstract class ZeldaEnemy {
     public ZeldaEnemy(double x, double y, int health, AIType aiType) {
         this.x = x;
         this.y = y;
+        this.prevX = x;
+        this.prevY = y;
         this.health = health;
         this.maxHealth = health;
         this.aiType = aiType;
@@ -50,13 +52,15 @@ public abstract class ZeldaEnemy {
     public ZeldaEnemy(double x, double y, int health, int damage, AIType aiType) {
         this.x = x;
         this.y = y;
+        this.prevX = x;
+        this.prevY = y;
         this.health = health;
         this.maxHealth = health;
         this.damage = damage;
         this.aiType = aiType;
     }
     
-    public void update(ZeldaPlayer player, ZeldaRoom room, List<Projectile> projectiles) {
+    public void update(ZeldaPlayer player, ZeldaRoom room, ProjectileBuffer projectiles) {
         oldX = x;
         oldY = y;
         
@@ -99,10 +103,7 @@ public abstract class ZeldaEnemy {
             case 3: x -= speed; break;
         }
         
-        int centerX = (int)(x + width/2);
-        int centerY = (int)(y + height/2);
-        
-        if (!room.isWalkable(centerX, centerY)) {
+        if (hitWall(room)) {
             x = oldX;
             y = oldY;
             direction = (direction + 1 + (int)(Math.random() * 3)) % 4;
@@ -112,6 +113,16 @@ public abstract class ZeldaEnemy {
         y = Math.max(8, Math.min(y, 176 - height - 8));
     }
     
+    /**
+     * True if the move from oldX/oldY to x/y put the enemy's box over a
+     * blocked tile. One that already overlapped a wall is let out rather
+     * than pinned in place.
+     */
+    protected boolean hitWall(ZeldaRoom room) {
+        return !room.isAreaWalkable((int)x, (int)y, width, height) &&
+               room.isAreaWalkable((int)oldX, (int)oldY, width, height);
+    }
+    
     public void damage(int amount) {
         if (damageTimer <= 0) {
             health -= amount;
@@ -123,33 +134,44 @@ public abstract class ZeldaEnemy {
         }
     }
     
-    public void render(Graphics2D g2) {
+    public void snapshot(RenderState state) {
         if (!active) return;
         
-        int drawX = (int)x;
-        int drawY = (int)y;
-        int size = 16;
+        RenderState.Sprite s = addSprite(state);
         
-        if (damageTimer > 0 && (damageTimer / 3) % 2 == 0) {
-            g2.setColor(Color.WHITE);
-            g2.fillRect(drawX, drawY, size, size);
+        if (isFlashing()) {
+            s.color = Color.WHITE;
             return;
         }
         
         if (sprite != null) {
-            boolean flipX = (direction == 1);
-            
-            if (flipX) {
-                g2.drawImage(sprite, drawX + size, drawY, -size, size, null);
-            } else {
-                g2.drawImage(sprite, drawX, drawY, size, size, null);
-            }
+            s.image = sprite;
+            s.flipX = (direction == 1);
         } else {
-            g2.setColor(Color.RED);
-            g2.fillRect(drawX, drawY, size, size);
+            s.color = Color.RED;
         }
     }
     
+    /**
+     * See ZeldaPlayer.beginTick
+     */
+    public void beginTick() {
+        prevX = x;
+        prevY = y;
+    }
+    
+    protected RenderState.Sprite addSprite(RenderState state) {
+        RenderState.Sprite s = state.addSprite();
+        s.x = (float)x;
+        s.y = (float)y;
+        s.setMotion(prevX, prevY, x, y);
+        return s;
+    }
+    
+    protected boolean isFlashing() {
+        return damageTimer > 0 && (damageTimer / 3) % 2 == 0;
+    }
+    
     protected BufferedImage loadSprite(String path) {
         try {
             File file = new File(path);
@@ -160,14 +182,20 @@ public abstract class ZeldaEnemy {
         return null;
     }
     
-    public Rectangle getHitbox() {
-        return new Rectangle((int)x, (int)y, width, height);
-    }
+    @Override public int getMinX() { return (int)x; }
+    @Override public int getMinY() { return (int)y; }
+    @Override public int getMaxX() { return (int)x + width; }
+    @Override public int getMaxY() { return (int)y + height; }
     
     public boolean canDamage() {
         return active && damageTimer <= damageCooldown / 2;
     }
     
+    /**
+     * The stronger colour of enemies that come in two (blue, black)
+     */
+    public boolean isVariant() { return false; }
+    
     public double getX() { return x; }
     public double getY() { return y; }
     public int getDamage() { return damage; }
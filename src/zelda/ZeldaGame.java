@@ -1,7 +1,12 @@
 package zelda;
 
+import engine.Histogram;
 import engine.KeyHandler;
+import engine.PhaseTimer;
 import java.awt.*;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 public class ZeldaGame {
     public enum GameState {
@@ -26,6 +31,7 @@ public class ZeldaGame {
     private SaveManager saveManager;
     private CombatManager combatManager;
     private Cave cave;
+    private RoomPrefetcher prefetcher;
     
     private int currentSaveSlot = -1;
     private String playerName = "LINK";
@@ -34,15 +40,49 @@ public class ZeldaGame {
     private static final int TRANSITION_DURATION = 20;
     private int transitionDirX = 0;
     private int transitionDirY = 0;
+    private int roomTransitions = 0;
+    
+    // Frame phases; update phases are timed on the simulation thread,
+    // render phases on whichever thread draws
+    public static final int PHASE_INPUT = 0;
+    public static final int PHASE_PLAYER = 1;
+    public static final int PHASE_ROOM = 2;
+    public static final int PHASE_COMBAT = 3;
+    public static final int PHASE_UPDATE = 4;
+    public static final int PHASE_ROOM_BLIT = 5;
+    public static final int PHASE_SPRITES = 6;
+    public static final int PHASE_HUD = 7;
+    public static final int PHASE_RENDER = 8;
+    public static final int PHASE_PRESENT = 9;
+    
+    private final PhaseTimer timings = new PhaseTimer(
+        "input", "player", "room", "combat", "update",
+        "blit", "sprites", "hud", "render", "present");
+    private boolean showTimings = false;
+    
+    private static final Color TIMING_BG = new Color(0, 0, 0, 200);
+    private static final Color TIMING_TEXT = new Color(128, 255, 128);
+    private static final Font TIMING_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 8);
     
     public ZeldaGame(KeyHandler keyHandler) {
+        this(keyHandler, new SaveManager(), new AudioManager());
+    }
+    
+    public ZeldaGame(KeyHandler keyHandler, SaveManager saveManager, AudioManager audioManager) {
         this.keyHandler = keyHandler;
+        this.saveManager = saveManager;
+        this.audioManager = audioManager;
         
-        saveManager = new SaveManager();
-        audioManager = new AudioManager();
         titleScreen = new TitleScreen(this, keyHandler);
         hud = new ZeldaHUD();
         combatManager = new CombatManager();
+        if (GameSettings.PREFETCH_ROOMS) {
+            prefetcher = new RoomPrefetcher();
+        }
+        
+        if (GameSettings.PRELOAD_COLLISION) {
+            ZeldaRoom.preloadCollision();
+        }
         
         audioManager.playMusic("01. Title Screen.wav");
     }
@@ -54,8 +94,10 @@ public class ZeldaGame {
         player = new ZeldaPlayer(120, 128, keyHandler);
         player.setName(name);
         
+        loadTerrain("");
         overworld = new Overworld();
         overworld.initialize();
+        prefetchNeighbours();
         
         hud.setPlayer(player);
         
@@ -81,9 +123,11 @@ public class ZeldaGame {
             player.setKeys(data.keys);
             player.setBombs(data.bombs);
             
+            loadTerrain(data.terrain);
             overworld = new Overworld();
             overworld.initialize();
             overworld.setCurrentRoom(data.roomX, data.roomY);
+            prefetchNeighbours();
             
             hud.setPlayer(player);
             
@@ -99,12 +143,57 @@ public class ZeldaGame {
             ZeldaRoom room = getCurrentRoom();
             saveManager.saveGame(currentSaveSlot, player, 
                 room != null ? room.getRoomX() : 7,
-                room != null ? room.getRoomY() : 7);
+                room != null ? room.getRoomY() : 7,
+                ZeldaRoom.getTerrain());
             audioManager.playSFX("06. Secret.wav");
         }
     }
     
+    /**
+     * True in states where nothing moves until the player presses a key.
+     * The title and file select screens only blink, on the clock, so they
+     * count too.
+     */
+    public boolean isIdle() {
+        switch (state) {
+            case PAUSED:
+            case GAME_OVER:
+                return true;
+            case TITLE_SCREEN:
+                return titleScreen.isWaitingForInput();
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Brings up the pause menu if the player is in play. Other states have
+     * no pause menu; to freeze them, stop calling update.
+     */
+    public void pause() {
+        if (state == GameState.PLAYING) {
+            state = GameState.PAUSED;
+        }
+    }
+    
     public void update() {
+        timings.start(PHASE_UPDATE);
+        
+        // Snapshots interpolate over the last tick only, however many ran
+        // since the previous frame
+        if (player != null) player.beginTick();
+        ZeldaRoom tickRoom = getCurrentRoom();
+        if (tickRoom != null) tickRoom.beginTick();
+        
+        if (keyHandler.timingOverlayPressed) {
+            showTimings = !showTimings;
+            keyHandler.timingOverlayPressed = false;
+        }
+        if (keyHandler.timingDumpPressed) {
+            dumpTimings();
+            keyHandler.timingDumpPressed = false;
+        }
+        
         switch (state) {
             case TITLE_SCREEN:
             case NAME_ENTRY:
@@ -139,12 +228,26 @@ public class ZeldaGame {
                 updateCave();
                 break;
         }
+        
+        timings.stop(PHASE_UPDATE);
+    }
+    
+    private void dumpTimings() {
+        String path = "timings-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv";
+        try {
+            timings.writeCsv(path);
+            System.out.println("[Timing] Wrote " + path);
+        } catch (IOException e) {
+            System.err.println("[Timing] Dump failed: " + e.getMessage());
+        }
     }
     
     private void updatePlaying() {
+        timings.start(PHASE_INPUT);
         if (keyHandler.startPressed) {
             state = GameState.PAUSED;
             keyHandler.startPressed = false;
+            timings.stop(PHASE_INPUT);
             return;
         }
         
@@ -152,12 +255,17 @@ public class ZeldaGame {
             saveGame();
             keyHandler.selectPressed = false;
         }
+        timings.stop(PHASE_INPUT);
         
+        timings.start(PHASE_PLAYER);
         player.update();
+        timings.stop(PHASE_PLAYER);
         
         ZeldaRoom currentRoom = getCurrentRoom();
         if (currentRoom != null) {
+            timings.start(PHASE_ROOM);
             currentRoom.update(player, combatManager, audioManager);
+            timings.stop(PHASE_ROOM);
             
             int edge = checkScreenEdge();
             if (edge != -1) {
@@ -165,7 +273,11 @@ public class ZeldaGame {
             }
         }
         
-        combatManager.update(player, currentRoom);
+        // Not currentRoom: after a transition the player is placed in the
+        // new room, and checking them against the old one undid that
+        timings.start(PHASE_COMBAT);
+        combatManager.update(player, getCurrentRoom());
+        timings.stop(PHASE_COMBAT);
         
         if (player.isDead()) {
             state = GameState.GAME_OVER;
@@ -228,6 +340,7 @@ public class ZeldaGame {
         
         if (overworld.hasRoom(newRoomX, newRoomY)) {
             overworld.setCurrentRoom(newRoomX, newRoomY);
+            prefetchNeighbours();
             
             switch (direction) {
                 case 0: player.setPosition(player.getWorldX(), 140); break;
@@ -235,9 +348,52 @@ public class ZeldaGame {
                 case 2: player.setPosition(player.getWorldX(), 24); break;
                 case 3: player.setPosition(224, player.getWorldY()); break;
             }
+            moveToOpenSpot(direction);
             
             transitionTimer = TRANSITION_DURATION;
             state = GameState.ROOM_TRANSITION;
+            roomTransitions++;
+        } else {
+            // The edge of the map is a wall; collision isn't checked out at
+            // the screen edge, so don't let the player stand there
+            player.rollbackPosition();
+        }
+    }
+    
+    /**
+     * The spot straight across from where the player left may be solid in
+     * the new room; slide along the entry edge to the nearest open one
+     */
+    private void moveToOpenSpot(int direction) {
+        ZeldaRoom room = getCurrentRoom();
+        int x = player.getWorldX();
+        int y = player.getWorldY();
+        if (room == null || room.canStandAt(x, y)) return;
+        
+        boolean alongX = direction == 0 || direction == 2;
+        for (int d = 1; d < 256; d++) {
+            for (int sign = -1; sign <= 1; sign += 2) {
+                int nx = alongX ? x + sign * d : x;
+                int ny = alongX ? y : y + sign * d;
+                if (nx < 8 || nx > 256 - 24 || ny < 8 || ny > 176 - 24) continue;
+                if (room.canStandAt(nx, ny)) {
+                    player.setPosition(nx, ny);
+                    return;
+                }
+            }
+        }
+    }
+    
+    private void loadTerrain(String encoded) {
+        ZeldaRoom.loadTerrain(encoded);
+        if (prefetcher != null) {
+            prefetcher.reset();
+        }
+    }
+    
+    private void prefetchNeighbours() {
+        if (prefetcher != null) {
+            prefetcher.enter(overworld, overworld.getCurrentRoom());
         }
     }
     
@@ -248,18 +404,66 @@ public class ZeldaGame {
         }
     }
     
-    public void render(Graphics2D g2) {
+    public void snapshot(RenderState out) {
+        out.clear();
+        out.state = state;
+        out.showTimings = showTimings;
+        
         switch (state) {
             case TITLE_SCREEN:
             case NAME_ENTRY:
-                titleScreen.render(g2);
+                titleScreen.snapshot(out);
                 break;
                 
             case PLAYING:
             case ROOM_TRANSITION:
             case PAUSED:
-                renderGame(g2);
-                if (state == GameState.PAUSED) {
+                ZeldaRoom currentRoom = getCurrentRoom();
+                if (currentRoom != null) {
+                    out.hasRoom = true;
+                    out.roomX = currentRoom.getRoomX();
+                    out.roomY = currentRoom.getRoomY();
+                    out.terrainRevision = ZeldaRoom.getTerrain().getRevision();
+                    currentRoom.snapshot(out);
+                }
+                out.transitionTimer = transitionTimer;
+                player.snapshot(out);
+                hud.snapshot(out);
+                break;
+                
+            case CAVE:
+                out.caveSwordTaken = cave.isSwordTaken();
+                player.snapshot(out);
+                hud.snapshot(out);
+                break;
+                
+            case GAME_OVER:
+                break;
+        }
+        
+        // The timing overlay changes every frame
+        out.moving = showTimings || out.hasMotion();
+    }
+    
+    public void render(Graphics2D g2, RenderState s) {
+        render(g2, s, 1f);
+    }
+    
+    public void render(Graphics2D g2, RenderState s, float alpha) {
+        if (s.state == null) return;
+        
+        timings.start(PHASE_RENDER);
+        switch (s.state) {
+            case TITLE_SCREEN:
+            case NAME_ENTRY:
+                titleScreen.render(g2, s);
+                break;
+                
+            case PLAYING:
+            case ROOM_TRANSITION:
+            case PAUSED:
+                renderGame(g2, s, alpha);
+                if (s.state == GameState.PAUSED) {
                     renderPauseOverlay(g2);
                 }
                 break;
@@ -269,39 +473,49 @@ public class ZeldaGame {
                 break;
                 
             case CAVE:
-                renderCave(g2);
+                renderCave(g2, s, alpha);
                 break;
         }
+        timings.stop(PHASE_RENDER);
+        
+        if (s.showTimings) {
+            renderTimings(g2);
+        }
     }
     
-    private void renderGame(Graphics2D g2) {
+    private void renderGame(Graphics2D g2, RenderState s, float alpha) {
         g2.translate(0, 56);
         
-        ZeldaRoom currentRoom = getCurrentRoom();
-        if (currentRoom != null) {
-            currentRoom.render(g2);
+        if (s.hasRoom) {
+            timings.start(PHASE_ROOM_BLIT);
+            ZeldaRoom.renderBackground(g2, s.roomX, s.roomY);
+            timings.stop(PHASE_ROOM_BLIT);
         }
         
-        player.render(g2);
+        timings.start(PHASE_SPRITES);
+        s.renderSprites(g2, alpha);
+        timings.stop(PHASE_SPRITES);
         
         combatManager.render(g2);
         
         g2.translate(0, -56);
         
-        hud.render(g2, getCurrentRoom());
+        timings.start(PHASE_HUD);
+        hud.render(g2, s, true);
+        timings.stop(PHASE_HUD);
         
-        if (state == GameState.ROOM_TRANSITION) {
-            g2.setColor(new Color(0, 0, 0, (int)(200 * (transitionTimer / (float)TRANSITION_DURATION))));
+        if (s.state == GameState.ROOM_TRANSITION) {
+            g2.setColor(new Color(0, 0, 0, (int)(200 * (s.transitionTimer / (float)TRANSITION_DURATION))));
             g2.fillRect(0, 56, 256, 176);
         }
     }
     
-    private void renderCave(Graphics2D g2) {
+    private void renderCave(Graphics2D g2, RenderState s, float alpha) {
         g2.translate(0, 56);
-        cave.render(g2);
-        player.render(g2);
+        cave.render(g2, s);
+        s.renderSprites(g2, alpha);
         g2.translate(0, -56);
-        hud.render(g2, null);
+        hud.render(g2, s, false);
     }
     
     private void renderPauseOverlay(Graphics2D g2) {
@@ -320,6 +534,31 @@ public class ZeldaGame {
         g2.drawString(saveText, (256 - textWidth) / 2, 140);
     }
     
+    /**
+     * p50/p99/max per phase in microseconds, drawn over the HUD
+     */
+    private void renderTimings(Graphics2D g2) {
+        g2.setColor(TIMING_BG);
+        g2.fillRect(0, 0, 256, 56);
+        
+        g2.setColor(TIMING_TEXT);
+        g2.setFont(TIMING_FONT);
+        g2.drawString("us     p50   p99   max", 2, 8);
+        g2.drawString("us     p50   p99   max", 130, 8);
+        
+        int rows = (timings.getPhaseCount() + 1) / 2;
+        for (int i = 0; i < timings.getPhaseCount(); i++) {
+            Histogram h = timings.getHistogram(i);
+            String line = String.format("%-7s%5d %5d %5d", timings.getName(i),
+                clampMicros(h.percentile(50)), clampMicros(h.percentile(99)), clampMicros(h.getMax()));
+            g2.drawString(line, i < rows ? 2 : 130, 17 + (i % rows) * 9);
+        }
+    }
+    
+    private static long clampMicros(long nanos) {
+        return Math.min(99_999, nanos / 1000);
+    }
+    
     private void renderGameOver(Graphics2D g2) {
         g2.setColor(new Color(139, 0, 0));
         g2.fillRect(0, 0, 256, 240);
@@ -345,6 +584,10 @@ public class ZeldaGame {
     
     public void setState(GameState state) { this.state = state; }
     public GameState getState() { return state; }
+    public ZeldaPlayer getPlayer() { return player; }
     public SaveManager getSaveManager() { return saveManager; }
     public AudioManager getAudioManager() { return audioManager; }
+    public int getRoomTransitions() { return roomTransitions; }
+    public RoomPrefetcher getPrefetcher() { return prefetcher; }
+    public PhaseTimer getTimings() { return timings; }
 }
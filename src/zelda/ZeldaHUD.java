@@ -37,16 +37,28 @@ public class ZeldaHUD {
     
     public void setPlayer(ZeldaPlayer p) { this.player = p; }
     
-    public void render(Graphics2D g2, ZeldaRoom room) {
+    public void snapshot(RenderState state) {
+        state.hasPlayer = player != null;
+        if (player == null) return;
+        
+        state.health = player.getHealth();
+        state.maxHealth = player.getMaxHealth();
+        state.rupees = player.getRupees();
+        state.keys = player.getKeys();
+        state.bombs = player.getBombs();
+        state.hasSword = player.hasSword();
+    }
+    
+    public void render(Graphics2D g2, RenderState state, boolean showRoom) {
         g2.setColor(BG);
         g2.fillRect(0, 0, 256, 56);
         
-        renderMinimap(g2, room);
-        renderInventory(g2);
-        renderLife(g2);
+        renderMinimap(g2, state, showRoom && state.hasRoom);
+        renderInventory(g2, state);
+        renderLife(g2, state);
     }
     
-    private void renderMinimap(Graphics2D g2, ZeldaRoom room) {
+    private void renderMinimap(Graphics2D g2, RenderState state, boolean showRoom) {
         int x = 16, y = 18, w = 64, h = 32;
         
         g2.setColor(new Color(80, 80, 80));
@@ -54,16 +66,16 @@ public class ZeldaHUD {
         g2.setColor(new Color(120, 120, 120));
         g2.drawRect(x-1, y-1, w+1, h+1);
         
-        if (room != null) {
-            int dx = x + (room.getRoomX() * w / 16);
-            int dy = y + (room.getRoomY() * h / 8);
+        if (showRoom) {
+            int dx = x + (state.roomX * w / Overworld.MAP_WIDTH);
+            int dy = y + (state.roomY * h / Overworld.MAP_HEIGHT);
             g2.setColor(new Color(0, 200, 0));
             g2.fillRect(dx, dy, 4, 4);
         }
     }
     
-    private void renderInventory(Graphics2D g2) {
-        if (player == null) return;
+    private void renderInventory(Graphics2D g2, RenderState state) {
+        if (!state.hasPlayer) return;
         
         int x = 92;
         int y = 8;
@@ -77,7 +89,7 @@ public class ZeldaHUD {
         g2.drawString("B", x + 6, y + 10);
         g2.drawString("A", x + 30, y + 10);
         
-        if (player.hasSword() && swordIcon != null) {
+        if (state.hasSword && swordIcon != null) {
             g2.drawImage(swordIcon, x + 28, y + 14, 12, 12, null);
         }
         
@@ -87,24 +99,24 @@ public class ZeldaHUD {
             g2.drawImage(rupeeIcon, x, iy, 8, 8, null);
         }
         g2.setColor(TEXT);
-        g2.drawString(String.format("%03d", player.getRupees()), x + 10, iy + 8);
+        g2.drawString(String.format("%03d", state.rupees), x + 10, iy + 8);
         
         if (keyIcon != null) {
             g2.drawImage(keyIcon, x + 36, iy - 2, 6, 10, null);
         }
         g2.setColor(TEXT);
-        g2.drawString(String.format("%02d", player.getKeys()), x + 44, iy + 8);
+        g2.drawString(String.format("%02d", state.keys), x + 44, iy + 8);
         
         int by = iy + 10;
         if (bombIcon != null) {
             g2.drawImage(bombIcon, x, by, 8, 8, null);
         }
         g2.setColor(TEXT);
-        g2.drawString(String.format("%02d", player.getBombs()), x + 10, by + 8);
+        g2.drawString(String.format("%02d", state.bombs), x + 10, by + 8);
     }
     
-    private void renderLife(Graphics2D g2) {
-        if (player == null) return;
+    private void renderLife(Graphics2D g2, RenderState state) {
+        if (!state.hasPlayer) return;
         
         int x = 176, y = 8;
         
@@ -115,9 +127,9 @@ public class ZeldaHUD {
         int hx = x;
         int hy = y + 12;
         int size = 8;
-        int maxH = player.getMaxHealth() / 2;
-        int fullH = player.getHealth() / 2;
-        boolean halfH = player.getHealth() % 2 == 1;
+        int maxH = state.maxHealth / 2;
+        int fullH = state.health / 2;
+        boolean halfH = state.health % 2 == 1;
         
         for (int i = 0; i < maxH; i++) {
             int px = hx + (i % 8) * (size + 1);
@@ -1,8 +1,15 @@
 package zelda;
 
+import engine.FrameSkipGovernor;
+import engine.GameLoop;
 import engine.KeyHandler;
+import engine.TripleBuffer;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.awt.image.VolatileImage;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 
@@ -24,13 +31,23 @@ public class ZeldaMain {
             public void windowClosing(WindowEvent e) {
                 gamePanel.cleanup();
             }
+            
+            @Override
+            public void windowIconified(WindowEvent e) {
+                gamePanel.setMinimized(true);
+            }
+            
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                gamePanel.setMinimized(false);
+            }
         });
         
         gamePanel.startGame();
     }
 }
 
-class ZeldaGamePanel extends JPanel implements Runnable {
+class ZeldaGamePanel extends Canvas implements GameLoop.Callbacks {
     public static final int NATIVE_WIDTH = 256;
     public static final int NATIVE_HEIGHT = 240;
     public static final int SCALE = 3;
@@ -38,65 +55,220 @@ class ZeldaGamePanel extends JPanel implements Runnable {
     public static final int SCREEN_HEIGHT = NATIVE_HEIGHT * SCALE;
     
     private Thread gameThread;
+    private Thread renderThread;
+    private GameLoop gameLoop;
+    private FrameSkipGovernor governor;
     private final int FPS = 60;
     
     private KeyHandler keyHandler;
     private ZeldaGame game;
     
+    private VolatileImage backBuffer;
+    private final TripleBuffer<RenderState> frames = new TripleBuffer<>(RenderState::new);
+    private long lastStillHash;
+    
+    private volatile boolean focused = true;
+    private volatile boolean minimized = false;
+    private volatile boolean surfaceDirty = false;
+    
     public ZeldaGamePanel() {
         this.setPreferredSize(new Dimension(SCREEN_WIDTH, SCREEN_HEIGHT));
         this.setBackground(Color.BLACK);
-        this.setDoubleBuffered(true);
+        this.setIgnoreRepaint(true);
         this.setFocusable(true);
         
         keyHandler = new KeyHandler();
         this.addKeyListener(keyHandler);
+        this.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                focused = true;
+                surfaceDirty = true;
+                wake();
+            }
+            
+            @Override
+            public void focusLost(FocusEvent e) {
+                focused = false;
+            }
+        });
         
         game = new ZeldaGame(keyHandler);
     }
     
     public void startGame() {
-        gameThread = new Thread(this);
+        createBufferStrategy(2);
+        requestFocus();
+        
+        gameLoop = new GameLoop(this, FPS);
+        governor = new FrameSkipGovernor(gameLoop.getTickNanos(), GameSettings.MAX_FRAME_SKIP);
+        gameLoop.setGovernor(governor);
+        gameLoop.setIdleTicksPerSecond(GameSettings.IDLE_TICK_RATE);
+        keyHandler.setWakeListener(gameLoop::wake);
+        gameThread = new Thread(gameLoop, "GameLoop");
         gameThread.start();
+        
+        renderThread = new Thread(this::renderLoop, "Render");
+        renderThread.start();
+    }
+    
+    @Override
+    public void update() {
+        // Nothing runs in the background, whatever the state; play is also
+        // left in the pause menu so it doesn't resume under the player
+        if (!focused || minimized) {
+            game.pause();
+            return;
+        }
+        game.update();
     }
     
     @Override
-    public void run() {
-        double drawInterval = 1000000000.0 / FPS;
-        double delta = 0;
-        long lastTime = System.nanoTime();
+    public boolean isIdle() {
+        return !focused || minimized || game.isIdle();
+    }
+    
+    @Override
+    public void render() {
+        RenderState state = frames.back();
+        game.snapshot(state);
+        state.idle = isIdle();
         
-        while (gameThread != null) {
-            long currentTime = System.nanoTime();
-            delta += (currentTime - lastTime) / drawInterval;
-            lastTime = currentTime;
+        // Frames without motion that would draw exactly what is already on
+        // screen are not published
+        if (state.idle || !state.moving) {
+            long hash = state.contentHash();
+            if (hash == lastStillHash) return;
+            lastStillHash = hash;
+        } else {
+            lastStillHash = 0;
+        }
+        
+        state.publishNanos = System.nanoTime();
+        frames.publish();
+    }
+    
+    public void setMinimized(boolean minimized) {
+        this.minimized = minimized;
+        if (!minimized) {
+            surfaceDirty = true;
+            wake();
+        }
+    }
+    
+    private void wake() {
+        if (gameLoop != null) gameLoop.wake();
+    }
+    
+    private void renderLoop() {
+        long frameNanos = 1_000_000_000L / targetFrameRate();
+        long nextFrame = System.nanoTime();
+        long handled = -1;
+        
+        while (gameLoop.isRunning()) {
+            RenderState state = frames.acquire();
+            // Nothing to interpolate unless something moved in the last tick
+            boolean still = state.idle || !state.moving || !GameSettings.INTERPOLATE;
             
-            if (delta >= 1) {
-                update();
-                repaint();
-                delta--;
+            // Still frames are drawn once; after that wait for the next publish
+            if ((still && state.publishNanos == handled && !surfaceDirty) || minimized) {
+                frames.awaitFresh(100_000_000L);
+                continue;
             }
+            
+            if (still || surfaceDirty || governor.shouldRender()) {
+                surfaceDirty = false;
+                present(state, still ? 1f : interpolationAlpha(state));
+            }
+            handled = state.publishNanos;
+            
+            if (still) continue;
+            
+            nextFrame += frameNanos;
+            long now = System.nanoTime();
+            if (now - nextFrame > frameNanos) {
+                nextFrame = now;
+            }
+            GameLoop.sleepUntil(nextFrame);
         }
     }
     
-    private void update() {
-        game.update();
+    private int targetFrameRate() {
+        int rate = FPS;
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc != null) {
+            int refresh = gc.getDevice().getDisplayMode().getRefreshRate();
+            if (refresh != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                rate = refresh;
+            }
+        }
+        return Math.max(1, Math.min(rate, GameSettings.MAX_FPS));
     }
     
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    private float interpolationAlpha(RenderState state) {
+        long sincePublish = System.nanoTime() - state.publishNanos;
+        return Math.max(0f, Math.min(1f, sincePublish / (float) gameLoop.getTickNanos()));
+    }
+    
+    private void present(RenderState state, float alpha) {
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) return;
         
-        Graphics2D g2 = (Graphics2D) g;
+        long start = System.nanoTime();
         
-        g2.scale(SCALE, SCALE);
+        do {
+            do {
+                renderBackBuffer(state, alpha);
+                
+                Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                    g2.drawImage(backBuffer, 0, 0, SCREEN_WIDTH, SCREEN_HEIGHT, null);
+                } finally {
+                    g2.dispose();
+                }
+            } while (strategy.contentsRestored());
+            
+            strategy.show();
+        } while (strategy.contentsLost());
         
-        game.render(g2);
+        Toolkit.getDefaultToolkit().sync();
+        long elapsed = System.nanoTime() - start;
+        governor.recordRender(elapsed);
+        game.getTimings().record(ZeldaGame.PHASE_PRESENT, elapsed);
+    }
+    
+    private void renderBackBuffer(RenderState state, float alpha) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
         
-        g2.dispose();
+        do {
+            if (backBuffer == null || backBuffer.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                backBuffer = gc.createCompatibleVolatileImage(NATIVE_WIDTH, NATIVE_HEIGHT);
+            }
+            
+            Graphics2D g2 = backBuffer.createGraphics();
+            try {
+                g2.setColor(Color.BLACK);
+                g2.fillRect(0, 0, NATIVE_WIDTH, NATIVE_HEIGHT);
+                game.render(g2, state, alpha);
+            } finally {
+                g2.dispose();
+            }
+        } while (backBuffer.contentsLost());
     }
     
     public void cleanup() {
+        if (gameLoop != null) {
+            gameLoop.stop();
+            if (GameSettings.LOOP_STATS) {
+                System.out.println("[Loop] ticks=" + gameLoop.getTickCount() +
+                    " frames=" + governor.getRenderedFrames() +
+                    " skipped=" + governor.getSkippedFrames() +
+                    " missed=" + gameLoop.getMissedDeadlines() +
+                    " dropped=" + gameLoop.getDroppedTicks());
+            }
+        }
         if (game != null) {
             game.getAudioManager().cleanup();
         }
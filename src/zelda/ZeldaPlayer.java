@@ -5,9 +5,10 @@ import java.awt.*;
 import javax.swing.ImageIcon;
 import java.io.File;
 
-public class ZeldaPlayer {
+public class ZeldaPlayer implements AABB {
     private int worldX, worldY;
     private int oldX, oldY;
+    private int prevX, prevY;       // position at the start of the tick, for interpolation
     private double speed = 1.5;
     
     private int health = 6;
@@ -26,20 +27,26 @@ public class ZeldaPlayer {
     private boolean attacking = false;
     private int attackTimer = 0;
     private static final int ATTACK_DURATION = 15;
-    private Rectangle swordHitbox = new Rectangle(0, 0, 14, 14);
+    private final AABB.Box swordHitbox = new AABB.Box(0, 0, 14, 14);
     private boolean attackKeyReleased = true;
+    private boolean bombKeyReleased = true;
+    private boolean bombQueued = false;
     
     private int invulnerableFrames = 0;
     private static final int INVULNERABLE_TIME = 60;
     
     private KeyHandler keyHandler;
     
+    private static final Color FALLBACK_COLOR = new Color(0, 168, 0);
+    
     private Image[][] walkImages = new Image[4][2];
     private Image[][] attackImages = new Image[4][2];
     
     public ZeldaPlayer(int x, int y, KeyHandler keyHandler) {
         this.worldX = x;
         this.worldY = y;
+        this.prevX = x;
+        this.prevY = y;
         this.keyHandler = keyHandler;
         loadSprites();
     }
@@ -90,6 +97,12 @@ public class ZeldaPlayer {
         }
         if (!keyHandler.zPressed) attackKeyReleased = true;
         
+        if (keyHandler.xPressed && bombKeyReleased) {
+            bombKeyReleased = false;
+            bombQueued = useBomb();
+        }
+        if (!keyHandler.xPressed) bombKeyReleased = true;
+        
         moving = false;
         if (!attacking) {
             if (keyHandler.upPressed) { worldY -= speed; direction = 0; moving = true; }
@@ -103,25 +116,43 @@ public class ZeldaPlayer {
     
     private void updateSwordHitbox() {
         if (!attacking) {
-            swordHitbox.setBounds(0, 0, 0, 0);
+            swordHitbox.set(0, 0, 0, 0);
             return;
         }
         
         int len = 16;
         int w = 10;
         switch (direction) {
-            case 0: swordHitbox.setBounds(worldX + 3, worldY - len, w, len); break;
-            case 1: swordHitbox.setBounds(worldX + 16, worldY + 3, len, w); break;
-            case 2: swordHitbox.setBounds(worldX + 3, worldY + 16, w, len); break;
-            case 3: swordHitbox.setBounds(worldX - len, worldY + 3, len, w); break;
+            case 0: swordHitbox.set(worldX + 3, worldY - len, w, len); break;
+            case 1: swordHitbox.set(worldX + 16, worldY + 3, len, w); break;
+            case 2: swordHitbox.set(worldX + 3, worldY + 16, w, len); break;
+            case 3: swordHitbox.set(worldX - len, worldY + 3, len, w); break;
         }
     }
     
-    public void render(Graphics2D g2) {
+    /**
+     * Marks the start of a simulation tick, so snapshots interpolate over
+     * that tick's movement only
+     */
+    public void beginTick() {
+        prevX = worldX;
+        prevY = worldY;
+    }
+    
+    public void snapshot(RenderState state) {
         if (invulnerableFrames > 0 && (invulnerableFrames / 4) % 2 == 0) return;
         
         Image[][] sprites = attacking ? attackImages : walkImages;
         Image img = sprites[direction][0];
+        RenderState.Sprite s = state.addSprite();
+        s.setMotion(prevX, prevY, worldX, worldY);
+        
+        if (img == null) {
+            s.x = worldX;
+            s.y = worldY;
+            s.color = FALLBACK_COLOR;
+            return;
+        }
         
         int x = worldX;
         int y = worldY;
@@ -137,16 +168,12 @@ public class ZeldaPlayer {
             }
         }
         
-        if (img != null) {
-            if (direction == 1) {
-                g2.drawImage(img, x + w, y, -w, h, null);
-            } else {
-                g2.drawImage(img, x, y, w, h, null);
-            }
-        } else {
-            g2.setColor(new Color(0, 168, 0));
-            g2.fillRect(worldX, worldY, 16, 16);
-        }
+        s.x = x;
+        s.y = y;
+        s.width = w;
+        s.height = h;
+        s.image = img;
+        s.flipX = direction == 1;
     }
     
     public void damage(int amt) {
@@ -161,8 +188,12 @@ public class ZeldaPlayer {
     public void rollbackPosition() { worldX = oldX; worldY = oldY; }
     public void setPosition(int x, int y) { worldX = x; worldY = y; }
     
-    public Rectangle getHitbox() { return new Rectangle(worldX + 2, worldY + 2, 12, 12); }
-    public Rectangle getSwordHitbox() { return swordHitbox; }
+    // Hitbox: 12x12, inset 2px into the 16px sprite
+    @Override public int getMinX() { return worldX + 2; }
+    @Override public int getMinY() { return worldY + 2; }
+    @Override public int getMaxX() { return worldX + 14; }
+    @Override public int getMaxY() { return worldY + 14; }
+    public AABB getSwordHitbox() { return swordHitbox; }
     
     public boolean isDead() { return health <= 0; }
     public boolean isAttacking() { return attacking; }
@@ -193,4 +224,13 @@ public class ZeldaPlayer {
     public void addBombs(int v) { bombs = Math.min(8, bombs + v); }
     public boolean useKey() { if (keys > 0) { keys--; return true; } return false; }
     public boolean useBomb() { if (bombs > 0) { bombs--; return true; } return false; }
+    
+    /**
+     * True once after the player sets down a bomb; the room places it
+     */
+    public boolean takeQueuedBomb() {
+        boolean queued = bombQueued;
+        bombQueued = false;
+        return queued;
+    }
 }
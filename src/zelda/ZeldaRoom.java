@@ -1,48 +1,140 @@
 package zelda;
 
+import engine.EntityArena;
+import engine.EntityView;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
 public class ZeldaRoom {
+    private final int world;
     private int roomX, roomY;
-    private List<ZeldaEnemy> enemies = new ArrayList<>();
-    private List<Item> items = new ArrayList<>();
-    private List<Projectile> projectiles = new ArrayList<>();
+    private final EntityArena<ZeldaEnemy> enemies = new EntityArena<>();
+    private final EntityArena<Item> items = new EntityArena<>();
+    private final ProjectileBuffer projectiles = ProjectileBuffer.obtain();
+    private List<Bomb> bombs = new ArrayList<>();
+    
+    // Broadphase for enemies and items, rebuilt each tick
+    private final SpatialGrid enemyGrid = new SpatialGrid(256, 176, TILE_SIZE);
+    private final SpatialGrid itemGrid = new SpatialGrid(256, 176, TILE_SIZE);
     
     private boolean cleared = false;
     private boolean visited = false;
+    private List<ZeldaEnemy> preparedSpawns;
     
     private static OverworldRenderer overworldRenderer;
     private static CollisionMap collisionMap;
+    private static final TerrainEdits terrain = new TerrainEdits();
     
     public static final int TILE_SIZE = 16;
     public static final int TILES_X = 16;
     public static final int TILES_Y = 11;
 
     public ZeldaRoom(int roomX, int roomY) {
+        this(CollisionMap.OVERWORLD, roomX, roomY);
+    }
+    
+    public ZeldaRoom(int world, int roomX, int roomY) {
+        this.world = world;
         this.roomX = roomX;
         this.roomY = roomY;
         
+        initShared();
+    }
+    
+    private static void initShared() {
         if (overworldRenderer == null) {
             overworldRenderer = new OverworldRenderer();
+            overworldRenderer.setTerrainEdits(terrain);
         }
         if (collisionMap == null) {
             collisionMap = new CollisionMap();
             collisionMap.setRenderer(overworldRenderer);
+            collisionMap.setTerrainEdits(terrain);
+            collisionMap.setPixelPrecise(GameSettings.PIXEL_COLLISION);
+            if (!GameSettings.COLLISION_ATLAS.isEmpty() && overworldRenderer.isMapLoaded() && !overworldRenderer.isStreaming()) {
+                CollisionAtlas.load(collisionMap, new java.io.File(GameSettings.COLLISION_ATLAS),
+                    new java.io.File(GameSettings.MAP_PATH));
+            }
         }
     }
     
+    /**
+     * Builds overworld collision up front so no room pays for it on its
+     * first frame. Call before the game loop starts.
+     */
+    public static void preloadCollision() {
+        initShared();
+        if (overworldRenderer.isStreaming()) {
+            System.out.println("[Collision] Streaming map, rooms are built as they're reached");
+            return;
+        }
+        long start = System.nanoTime();
+        int rooms = collisionMap.buildOverworld();
+        System.out.printf("[Collision] Built %d rooms in %.1f ms on %d threads%n", rooms,
+            (System.nanoTime() - start) / 1e6, java.util.concurrent.ForkJoinPool.getCommonPoolParallelism());
+    }
+    
+    /**
+     * Package-private accessors for the room prefetcher
+     */
+    static OverworldRenderer getRenderer() {
+        initShared();
+        return overworldRenderer;
+    }
+    
+    static CollisionMap getCollisionMap() {
+        initShared();
+        return collisionMap;
+    }
+    
+    public static TerrainEdits getTerrain() {
+        return terrain;
+    }
+    
+    /**
+     * Replaces the terrain edits with a saved game's (empty for a new game).
+     * Only rooms edited in either game are rebuilt.
+     */
+    public static void loadTerrain(String encoded) {
+        initShared();
+        TerrainEdits.RoomVisitor invalidate = (world, x, y) -> {
+            collisionMap.invalidateRoom(world, x, y);
+            if (world == CollisionMap.OVERWORLD) overworldRenderer.invalidateRoom(x, y);
+        };
+        terrain.forEachRoom(invalidate);
+        terrain.load(encoded);
+        terrain.forEachRoom(invalidate);
+    }
+    
     public void spawnEnemies() {
         if (!enemies.isEmpty() || cleared) return;
-        if (roomX == 7 && roomY == 7) return;
+        
+        enemies.addAll(preparedSpawns != null ? preparedSpawns : rollSpawns(collisionMap, world, roomX, roomY));
+        preparedSpawns = null;
+    }
+    
+    /**
+     * Enemies rolled ahead of time (by the prefetcher) to use on first entry
+     */
+    void setPreparedSpawns(List<ZeldaEnemy> spawns) {
+        preparedSpawns = spawns;
+    }
+    
+    /**
+     * The room's spawn list. Seeded by room position, so the same room
+     * always rolls the same enemies whichever thread rolls them.
+     */
+    static List<ZeldaEnemy> rollSpawns(CollisionMap map, int world, int roomX, int roomY) {
+        List<ZeldaEnemy> spawns = new ArrayList<>();
+        if (roomX == 7 && roomY == 7) return spawns;
         
         java.util.Random rand = new java.util.Random(roomX * 100 + roomY);
         int numEnemies = 1 + rand.nextInt(3);
         
         for (int i = 0; i < numEnemies; i++) {
-            Point spawn = findWalkableSpawn(rand);
+            Point spawn = findWalkableSpawn(map, world, roomX, roomY, rand);
             if (spawn == null) continue;
             
             ZeldaEnemy enemy;
@@ -55,16 +147,18 @@ public class ZeldaRoom {
             } else {
                 enemy = new zelda.enemies.Tektite(spawn.x, spawn.y, rand.nextBoolean());
             }
-            enemies.add(enemy);
+            spawns.add(enemy);
         }
+        return spawns;
     }
     
-    private Point findWalkableSpawn(java.util.Random rand) {
+    private static Point findWalkableSpawn(CollisionMap map, int world, int roomX, int roomY, java.util.Random rand) {
         for (int attempt = 0; attempt < 20; attempt++) {
             int tx = 2 + rand.nextInt(12);
             int ty = 2 + rand.nextInt(7);
             
-            if (collisionMap.getTileType(roomX, roomY, tx, ty).walkable) {
+            // Enemies are up to 16px square, so check everything they could cover
+            if (map.isAreaWalkable(world, roomX, roomY, tx * TILE_SIZE + 4, ty * TILE_SIZE + 4, TILE_SIZE, TILE_SIZE)) {
                 return new Point(tx * TILE_SIZE + 4, ty * TILE_SIZE + 4);
             }
         }
@@ -77,112 +171,267 @@ public class ZeldaRoom {
             spawnEnemies();
         }
         
-        Iterator<ZeldaEnemy> enemyIter = enemies.iterator();
-        while (enemyIter.hasNext()) {
-            ZeldaEnemy enemy = enemyIter.next();
-            
-            if (!enemy.isActive()) {
-                enemyIter.remove();
-                if (Math.random() < 0.35) {
-                    spawnDrop(enemy.getX(), enemy.getY());
-                    if (audio != null) audio.playSFX("04. Small Item Get.wav");
-                }
-                continue;
-            }
-            
-            enemy.update(player, this, projectiles);
-            
-            if (enemy.getHitbox().intersects(player.getHitbox()) && enemy.canDamage()) {
+        for (int i = 0; i < enemies.size(); i++) {
+            ZeldaEnemy enemy = enemies.get(i);
+            if (enemy.isActive()) enemy.update(player, this, projectiles);
+        }
+        
+        // Enemies don't move again this tick, so everything below can query
+        // one grid. Hits are taken in arena order, as a plain loop would.
+        enemyGrid.clear();
+        for (int i = 0; i < enemies.size(); i++) {
+            enemyGrid.add(enemies.get(i));
+        }
+        enemyGrid.build();
+        
+        int n = enemyGrid.query(player);
+        for (int i = 0; i < n; i++) {
+            ZeldaEnemy enemy = enemies.get(enemyGrid.getResult(i));
+            if (enemy.canDamage()) {
                 player.damage(enemy.getDamage());
             }
-            
-            if (player.isAttacking() && player.getSwordHitbox().intersects(enemy.getHitbox())) {
-                enemy.damage(1);
+        }
+        
+        if (player.isAttacking()) {
+            n = enemyGrid.query(player.getSwordHitbox());
+            for (int i = 0; i < n; i++) {
+                enemies.get(enemyGrid.getResult(i)).damage(1);
             }
         }
         
-        if (enemies.isEmpty() && !cleared) cleared = true;
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).update();
+        }
         
-        Iterator<Item> itemIter = items.iterator();
-        while (itemIter.hasNext()) {
-            Item item = itemIter.next();
-            if (!item.isActive()) { itemIter.remove(); continue; }
-            
-            item.update();
-            if (item.getHitbox().intersects(player.getHitbox())) {
-                item.applyToPlayer(player);
-                if (audio != null) audio.playSFX("04. Small Item Get.wav");
+        itemGrid.clear();
+        for (int i = 0; i < items.size(); i++) {
+            itemGrid.add(items.get(i));
+        }
+        itemGrid.build();
+        
+        n = itemGrid.query(player);
+        for (int i = 0; i < n; i++) {
+            items.get(itemGrid.getResult(i)).applyToPlayer(player);
+            if (audio != null) audio.playSFX("04. Small Item Get.wav");
+        }
+        
+        projectiles.update(this, player);
+        
+        if (player.takeQueuedBomb()) {
+            placeBomb(player);
+        }
+        Iterator<Bomb> bombIter = bombs.iterator();
+        while (bombIter.hasNext()) {
+            Bomb bomb = bombIter.next();
+            if (bomb.update() && blast(bomb.getX(), bomb.getY(), Bomb.RADIUS) > 0) {
+                if (audio != null) audio.playSFX("06. Secret.wav");
             }
+            if (!bomb.isActive()) bombIter.remove();
         }
         
-        Iterator<Projectile> projIter = projectiles.iterator();
-        while (projIter.hasNext()) {
-            Projectile proj = projIter.next();
-            if (!proj.isActive()) { projIter.remove(); continue; }
-            
-            proj.update();
+        checkPlayerCollision(player);
+        
+        reap(audio);
+    }
+    
+    /**
+     * End of tick: drops whatever died or was picked up, leaving drops behind
+     */
+    private void reap(AudioManager audio) {
+        for (int i = 0; i < enemies.size(); i++) {
+            ZeldaEnemy enemy = enemies.get(i);
+            if (enemy.isActive()) continue;
             
-            if (!proj.isPlayerOwned() && proj.getHitbox().intersects(player.getHitbox())) {
-                player.damage(1);
-                proj.deactivate();
+            enemies.removeLater(i);
+            if (Math.random() < 0.35) {
+                spawnDrop(enemy.getX(), enemy.getY());
+                if (audio != null) audio.playSFX("04. Small Item Get.wav");
             }
+        }
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (item.isActive()) continue;
             
-            if (proj.isPlayerOwned()) {
-                for (ZeldaEnemy enemy : enemies) {
-                    if (proj.getHitbox().intersects(enemy.getHitbox())) {
-                        enemy.damage(1);
-                        proj.deactivate();
-                        break;
-                    }
+            items.removeLater(i);
+            Item.recycle(item);
+        }
+        enemies.compact();
+        items.compact();
+        
+        if (enemies.isEmpty() && !cleared) cleared = true;
+    }
+    
+    /**
+     * Damages the first enemy in the list overlapping the box, as a
+     * projectile hit. Only valid during update, once the grid is built.
+     */
+    boolean hitEnemy(int x, int y, int width, int height) {
+        int first = enemyGrid.first(x, y, width, height);
+        if (first < 0) return false;
+        enemies.get(first).damage(1);
+        return true;
+    }
+    
+    private void placeBomb(ZeldaPlayer player) {
+        int x = player.getWorldX() + 8;
+        int y = player.getWorldY() + 8;
+        switch (player.getDirection()) {
+            case 0: y -= 16; break;
+            case 1: x += 16; break;
+            case 2: y += 16; break;
+            case 3: x -= 16; break;
+        }
+        bombs.add(new Bomb(x, y));
+    }
+    
+    /**
+     * Breaks rock walls and burns bushes whose centre is within radius of
+     * (x, y), and hurts enemies caught in it. Returns the tiles opened up.
+     */
+    public int blast(double x, double y, int radius) {
+        int opened = 0;
+        for (int ty = 0; ty < TILES_Y; ty++) {
+            for (int tx = 0; tx < TILES_X; tx++) {
+                double dx = tx * TILE_SIZE + TILE_SIZE / 2 - x;
+                double dy = ty * TILE_SIZE + TILE_SIZE / 2 - y;
+                if (dx * dx + dy * dy > radius * radius) continue;
+                
+                TileType type = collisionMap.getTileType(world, roomX, roomY, tx, ty);
+                if (type == TileType.WALL || type == TileType.TREE) {
+                    editTile(tx, ty, TileType.FLOOR);
+                    opened++;
                 }
             }
         }
         
-        checkPlayerCollision(player);
+        for (ZeldaEnemy enemy : enemies) {
+            double dx = (enemy.getMinX() + enemy.getMaxX()) / 2.0 - x;
+            double dy = (enemy.getMinY() + enemy.getMaxY()) / 2.0 - y;
+            if (dx * dx + dy * dy <= radius * radius) enemy.damage(2);
+        }
+        return opened;
+    }
+    
+    /**
+     * Records an edit and updates only what it touches: one collision tile
+     * with its derived tables, and one tile of the cached room image
+     */
+    public void editTile(int tileX, int tileY, TileType type) {
+        terrain.set(world, roomX, roomY, tileX, tileY, type);
+        collisionMap.setTile(world, roomX, roomY, tileX, tileY, type);
+        if (world == CollisionMap.OVERWORLD) {
+            overworldRenderer.invalidateTile(roomX, roomY, tileX, tileY);
+        }
+    }
+    
+    /**
+     * Compact form kept while the player is elsewhere, or null if the room
+     * was never entered and can simply be made again
+     */
+    DormantRoom sleep() {
+        if (!visited) return null;
+        return DormantRoom.of(cleared, enemies, items);
+    }
+    
+    /**
+     * Hands the room's items and projectile storage back to their pools.
+     * The room must not be used afterwards.
+     */
+    void release() {
+        for (Item item : items) Item.recycle(item);
+        items.clear();
+        ProjectileBuffer.recycle(projectiles);
+    }
+    
+    void wake(DormantRoom state) {
+        visited = true;
+        cleared = state.isCleared();
+        state.restore(enemies, items);
     }
     
     private void spawnDrop(double x, double y) {
         double r = Math.random();
         Item.ItemType type = r < 0.5 ? Item.ItemType.HEART : 
                             r < 0.75 ? Item.ItemType.RUPEE_GREEN : Item.ItemType.RUPEE_BLUE;
-        items.add(new Item(x, y, type));
+        items.add(Item.obtain(x, y, type));
     }
     
     public boolean isWalkable(int x, int y) {
         if (x < 0 || x >= 256 || y < 0 || y >= 176) {
             return true;
         }
-        return collisionMap.isWalkable(roomX, roomY, x, y);
+        return collisionMap.isWalkable(world, roomX, roomY, x, y);
+    }
+    
+    public boolean isAreaWalkable(int x, int y, int width, int height) {
+        return collisionMap.isAreaWalkable(world, roomX, roomY, x, y, width, height);
+    }
+    
+    public boolean isAreaWalkable(AABB area) {
+        return isAreaWalkable(area.getMinX(), area.getMinY(),
+            area.getMaxX() - area.getMinX(), area.getMaxY() - area.getMinY());
+    }
+    
+    /**
+     * Whether the player would pass checkPlayerCollision standing at
+     * (worldX, worldY)
+     */
+    public boolean canStandAt(int worldX, int worldY) {
+        return isAreaWalkable(worldX + 4, worldY + 4, 9, 9);
     }
     
     public void checkPlayerCollision(ZeldaPlayer player) {
-        Rectangle box = player.getHitbox();
+        int x = player.getMinX();
+        int y = player.getMinY();
         
-        if (box.x < 4 || box.x > 240 || box.y < 4 || box.y > 156) {
+        if (x < 4 || x > 240 || y < 4 || y > 156) {
             return;
         }
         
-        boolean blocked = !isWalkable(box.x + 2, box.y + 2) ||
-                         !isWalkable(box.x + box.width - 2, box.y + 2) ||
-                         !isWalkable(box.x + 2, box.y + box.height - 2) ||
-                         !isWalkable(box.x + box.width - 2, box.y + box.height - 2);
-        
-        if (blocked) {
+        // Inset by 2px so the player can brush past corners
+        if (!isAreaWalkable(x + 2, y + 2, player.getMaxX() - x - 3, player.getMaxY() - y - 3)) {
             player.rollbackPosition();
         }
     }
     
-    public void render(Graphics2D g2) {
-        overworldRenderer.renderRoom(g2, roomX, roomY);
-        
-        for (Item item : items) item.render(g2);
-        for (ZeldaEnemy enemy : enemies) enemy.render(g2);
-        for (Projectile proj : projectiles) proj.render(g2);
+    public void beginTick() {
+        for (int i = 0; i < enemies.size(); i++) enemies.get(i).beginTick();
+        projectiles.beginTick();
+    }
+    
+    public void snapshot(RenderState state) {
+        for (Item item : items) item.snapshot(state);
+        for (ZeldaEnemy enemy : enemies) enemy.snapshot(state);
+        projectiles.snapshot(state);
+        for (Bomb bomb : bombs) bomb.snapshot(state);
     }
     
-    public void addProjectile(Projectile proj) { projectiles.add(proj); }
+    public static void renderBackground(Graphics2D g2, int roomX, int roomY) {
+        if (overworldRenderer != null) {
+            overworldRenderer.renderRoom(g2, roomX, roomY);
+        }
+    }
+    
+    public int getWorld() { return world; }
     public int getRoomX() { return roomX; }
     public int getRoomY() { return roomY; }
     public boolean isCleared() { return cleared; }
-    public List<ZeldaEnemy> getEnemies() { return enemies; }
+    
+    /**
+     * The room's enemies. Removal is deferred to the end of the tick, so
+     * there is no List-style remove; use removeLater.
+     */
+    public EntityView<ZeldaEnemy> getEnemies() { return enemies; }
+    
+    /**
+     * Handle to an enemy that stays valid while the enemy is in the room;
+     * see EntityArena
+     */
+    public long getEnemyHandle(ZeldaEnemy enemy) {
+        int index = enemies.indexOf(enemy);
+        return index >= 0 ? enemies.handleAt(index) : EntityArena.NONE;
+    }
+    
+    public ZeldaEnemy getEnemy(long handle) { return enemies.get(handle); }
+    public ProjectileBuffer getProjectiles() { return projectiles; }
 }
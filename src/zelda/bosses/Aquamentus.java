@@ -2,11 +2,11 @@ package zelda.bosses;
 
 import zelda.*;
 import java.awt.*;
-import java.util.List;
 
 public class Aquamentus extends ZeldaEnemy {
     private int shootTimer = 0;
     private static final int SHOOT_COOLDOWN = 120;
+    private static final Color BODY_COLOR = new Color(0, 100, 0);
     
     private double moveTargetX;
     private int moveTimer = 0;
@@ -30,7 +30,7 @@ public class Aquamentus extends ZeldaEnemy {
     }
     
     @Override
-    public void update(ZeldaPlayer player, ZeldaRoom room, List<Projectile> projectiles) {
+    public void update(ZeldaPlayer player, ZeldaRoom room, ProjectileBuffer projectiles) {
         oldX = x;
         oldY = y;
         
@@ -54,6 +54,10 @@ public class Aquamentus extends ZeldaEnemy {
         
         if (Math.abs(x - moveTargetX) > speed) {
             x += (moveTargetX > x) ? speed : -speed;
+            if (hitWall(room)) {
+                x = oldX;
+                moveTimer = 0;
+            }
         }
         
         if (shootTimer == 0) {
@@ -62,7 +66,7 @@ public class Aquamentus extends ZeldaEnemy {
         }
     }
     
-    private void shootFireballs(ZeldaPlayer player, List<Projectile> projectiles) {
+    private void shootFireballs(ZeldaPlayer player, ProjectileBuffer projectiles) {
         double baseAngle = Math.atan2(player.getWorldY() - y, player.getWorldX() - x);
         double spread = Math.PI / 6;
         double projSpeed = 1.5;
@@ -72,37 +76,27 @@ public class Aquamentus extends ZeldaEnemy {
             double vx = Math.cos(angle) * projSpeed;
             double vy = Math.sin(angle) * projSpeed;
             
-            Projectile fireball = new Projectile(x, y + height/2, vx, vy, false);
-            fireball.setColor(Color.ORANGE);
-            fireball.setSize(10, 10);
-            projectiles.add(fireball);
+            projectiles.emit(x, y + height/2, vx, vy, false, ProjectileBuffer.STYLE_FIREBALL);
         }
     }
     
     @Override
-    public void render(Graphics2D g2) {
+    public void snapshot(RenderState state) {
         if (!active) return;
         
-        if (damageTimer > 0 && (damageTimer / 3) % 2 == 0) {
-            g2.setColor(Color.WHITE);
-            g2.fillRect((int)x, (int)y, width, height);
+        RenderState.Sprite s = addSprite(state);
+        s.width = width;
+        s.height = height;
+        s.bar = (float)health / maxHealth;
+        
+        if (isFlashing()) {
+            s.color = Color.WHITE;
         } else if (sprite != null) {
-            g2.drawImage(sprite, (int)x, (int)y, null);
+            s.image = sprite;
+            s.width = sprite.getWidth();
+            s.height = sprite.getHeight();
         } else {
-            g2.setColor(new Color(0, 100, 0));
-            g2.fillRect((int)x, (int)y, width, height);
-            
-            g2.setColor(Color.RED);
-            g2.fillOval((int)x + width - 8, (int)y + 8, 6, 6);
-            
-            g2.setColor(new Color(0, 80, 0));
-            g2.fillRect((int)x - 8, (int)y + 12, 10, 4);
+            s.color = BODY_COLOR;
         }
-        
-        g2.setColor(Color.BLACK);
-        g2.fillRect((int)x, (int)y - 6, width, 4);
-        g2.setColor(Color.RED);
-        int healthWidth = (int)((double)health / maxHealth * width);
-        g2.fillRect((int)x, (int)y - 6, healthWidth, 4);
     }
 }
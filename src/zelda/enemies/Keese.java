@@ -1,7 +1,6 @@
 package zelda.enemies;
 
 import zelda.*;
-import java.util.List;
 
 public class Keese extends ZeldaEnemy {
     private double targetX, targetY;
@@ -23,7 +22,7 @@ public class Keese extends ZeldaEnemy {
     }
     
     @Override
-    public void update(ZeldaPlayer player, ZeldaRoom room, List<Projectile> projectiles) {
+    public void update(ZeldaPlayer player, ZeldaRoom room, ProjectileBuffer projectiles) {
         oldX = x;
         oldY = y;
         
@@ -51,10 +50,7 @@ public class Keese extends ZeldaEnemy {
             y += (dy / dist) * speed;
         }
         
-        int centerX = (int)(x + width/2);
-        int centerY = (int)(y + height/2);
-        
-        if (!room.isWalkable(centerX, centerY)) {
+        if (hitWall(room)) {
             x = oldX;
             y = oldY;
             moveTimer = 0;
@@ -63,4 +59,7 @@ public class Keese extends ZeldaEnemy {
         x = Math.max(8, Math.min(x, 256 - width - 8));
         y = Math.max(8, Math.min(y, 176 - height - 8));
     }
+    
+    @Override
+    public boolean isVariant() { return isBlue; }
 }
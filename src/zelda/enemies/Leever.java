@@ -3,12 +3,14 @@ package zelda.enemies;
 import zelda.ZeldaEnemy;
 import zelda.ZeldaPlayer;
 import zelda.ZeldaRoom;
-import zelda.Projectile;
+import zelda.ProjectileBuffer;
+import zelda.RenderState;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.List;
 
 public class Leever extends ZeldaEnemy {
+    private static final Color HIT_OVERLAY = new Color(255, 255, 255, 100);
+    
     private boolean isBlue;
     private int stateTimer = 0;
     private LeverState state = LeverState.BURROWED;
@@ -38,7 +40,7 @@ public class Leever extends ZeldaEnemy {
     }
     
     @Override
-    public void update(ZeldaPlayer player, ZeldaRoom room, List<Projectile> projectiles) {
+    public void update(ZeldaPlayer player, ZeldaRoom room, ProjectileBuffer projectiles) {
         super.update(player, room, projectiles);
         stateTimer++;
         
@@ -99,14 +101,14 @@ public class Leever extends ZeldaEnemy {
     }
     
     @Override
-    public void render(Graphics2D g2) {
-        if (sprite != null) {
-            g2.drawImage(sprite, (int)x, (int)y, 16, 16, null);
-        }
+    public void snapshot(RenderState state) {
+        if (sprite == null && invulnerableFrames == 0) return;
+        
+        RenderState.Sprite s = addSprite(state);
+        s.image = sprite;
         
         if (invulnerableFrames > 0) {
-            g2.setColor(new Color(255, 255, 255, 100));
-            g2.fillRect((int)x, (int)y, 16, 16);
+            s.overlay = HIT_OVERLAY;
         }
     }
     
@@ -115,11 +117,17 @@ public class Leever extends ZeldaEnemy {
         return state == LeverState.ACTIVE;
     }
     
+    // No hitbox while burrowed: an empty box overlaps nothing
     @Override
-    public Rectangle getHitbox() {
-        if (state == LeverState.BURROWED) {
-            return new Rectangle(0, 0, 0, 0);
-        }
-        return super.getHitbox();
+    public int getMaxX() {
+        return state == LeverState.BURROWED ? getMinX() : super.getMaxX();
     }
+    
+    @Override
+    public int getMaxY() {
+        return state == LeverState.BURROWED ? getMinY() : super.getMaxY();
+    }
+    
+    @Override
+    public boolean isVariant() { return isBlue; }
 }
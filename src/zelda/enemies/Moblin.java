@@ -1,7 +1,6 @@
 package zelda.enemies;
 
 import zelda.*;
-import java.util.List;
 
 public class Moblin extends ZeldaEnemy {
     private int shootTimer = 0;
@@ -25,7 +24,7 @@ public class Moblin extends ZeldaEnemy {
     }
     
     @Override
-    public void update(ZeldaPlayer player, ZeldaRoom room, List<Projectile> projectiles) {
+    public void update(ZeldaPlayer player, ZeldaRoom room, ProjectileBuffer projectiles) {
         oldX = x;
         oldY = y;
         
@@ -63,10 +62,7 @@ public class Moblin extends ZeldaEnemy {
             }
         }
         
-        int centerX = (int)(x + width/2);
-        int centerY = (int)(y + height/2);
-        
-        if (!room.isWalkable(centerX, centerY)) {
+        if (hitWall(room)) {
             x = oldX;
             y = oldY;
             direction = (direction == 1) ? 3 : 1;
@@ -76,7 +72,7 @@ public class Moblin extends ZeldaEnemy {
         y = Math.max(8, Math.min(y, 176 - height - 8));
     }
     
-    private void shootSpear(ZeldaPlayer player, List<Projectile> projectiles) {
+    private void shootSpear(ZeldaPlayer player, ProjectileBuffer projectiles) {
         double dx = player.getWorldX() - x;
         double dy = player.getWorldY() - y;
         double dist = Math.sqrt(dx * dx + dy * dy);
@@ -85,10 +81,10 @@ public class Moblin extends ZeldaEnemy {
             double vx = (dx / dist) * 2.0;
             double vy = (dy / dist) * 2.0;
             
-            Projectile spear = new Projectile(x + 3, y + 3, vx, vy, false);
-            spear.setColor(new java.awt.Color(139, 69, 19));
-            spear.setSize(4, 12);
-            projectiles.add(spear);
+            projectiles.emit(x + 3, y + 3, vx, vy, false, ProjectileBuffer.STYLE_SPEAR);
         }
     }
+    
+    @Override
+    public boolean isVariant() { return isBlack; }
 }
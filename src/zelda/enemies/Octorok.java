@@ -4,7 +4,6 @@ import zelda.*;
 import javax.swing.ImageIcon;
 import java.awt.*;
 import java.io.File;
-import java.util.List;
 
 public class Octorok extends ZeldaEnemy {
     private int shootTimer = 0;
@@ -15,6 +14,9 @@ public class Octorok extends ZeldaEnemy {
     private static final int SHOOT_COOLDOWN = 90;
     private static final int SHOOT_RANGE = 100;
     
+    private static final Color BLUE_COLOR = new Color(0, 100, 200);
+    private static final Color RED_COLOR = new Color(200, 50, 50);
+    
     private boolean isBlue;
     private Image frontSprite;
     private Image leftSprite;
@@ -39,7 +41,7 @@ public class Octorok extends ZeldaEnemy {
     }
     
     @Override
-    public void update(ZeldaPlayer player, ZeldaRoom room, List<Projectile> projectiles) {
+    public void update(ZeldaPlayer player, ZeldaRoom room, ProjectileBuffer projectiles) {
         oldX = x;
         oldY = y;
         
@@ -82,10 +84,7 @@ public class Octorok extends ZeldaEnemy {
             case 3: x -= speed; break;
         }
         
-        int cx = (int)(x + width/2);
-        int cy = (int)(y + height/2);
-        
-        if (!room.isWalkable(cx, cy)) {
+        if (hitWall(room)) {
             x = oldX;
             y = oldY;
             direction = (direction + 1 + (int)(Math.random() * 2)) % 4;
@@ -95,7 +94,7 @@ public class Octorok extends ZeldaEnemy {
         y = Math.max(16, Math.min(y, 160 - height));
     }
     
-    private void shoot(List<Projectile> projectiles) {
+    private void shoot(ProjectileBuffer projectiles) {
         double vx = 0, vy = 0;
         double projSpeed = 1.5;
         
@@ -106,22 +105,17 @@ public class Octorok extends ZeldaEnemy {
             case 3: vx = -projSpeed; break;
         }
         
-        Projectile rock = new Projectile(x + 4, y + 4, vx, vy, false);
-        rock.setColor(new Color(139, 90, 43));
-        rock.setSize(6, 6);
-        projectiles.add(rock);
+        projectiles.emit(x + 4, y + 4, vx, vy, false, ProjectileBuffer.STYLE_ROCK);
     }
     
     @Override
-    public void render(Graphics2D g2) {
+    public void snapshot(RenderState state) {
         if (!active) return;
         
-        int drawX = (int)x;
-        int drawY = (int)y;
+        RenderState.Sprite s = addSprite(state);
         
-        if (damageTimer > 0 && (damageTimer / 3) % 2 == 0) {
-            g2.setColor(Color.WHITE);
-            g2.fillRect(drawX, drawY, 16, 16);
+        if (isFlashing()) {
+            s.color = Color.WHITE;
             return;
         }
         
@@ -142,14 +136,14 @@ public class Octorok extends ZeldaEnemy {
         }
         
         if (img != null) {
-            if (flipH) {
-                g2.drawImage(img, drawX + 16, drawY, -16, 16, null);
-            } else {
-                g2.drawImage(img, drawX, drawY, 16, 16, null);
-            }
+            s.image = img;
+            s.flipX = flipH;
         } else {
-            g2.setColor(isBlue ? new Color(0, 100, 200) : new Color(200, 50, 50));
-            g2.fillOval(drawX, drawY, 16, 16);
+            s.shape = RenderState.SHAPE_OVAL;
+            s.color = isBlue ? BLUE_COLOR : RED_COLOR;
         }
     }
+    
+    @Override
+    public boolean isVariant() { return isBlue; }
 }
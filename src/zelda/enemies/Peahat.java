@@ -3,11 +3,15 @@ package zelda.enemies;
 import zelda.ZeldaEnemy;
 import zelda.ZeldaPlayer;
 import zelda.ZeldaRoom;
-import zelda.Projectile;
+import zelda.ProjectileBuffer;
+import zelda.RenderState;
 import java.awt.*;
-import java.util.List;
 
 public class Peahat extends ZeldaEnemy {
+    private static final Color BODY_COLOR = new Color(180, 100, 50);
+    private static final Color HIT_OVERLAY = new Color(255, 255, 255, 100);
+    private static final Color LANDED_OVERLAY = new Color(255, 255, 255, 50);
+    
     private double angle = 0;
     private double floatOffset = 0;
     private int moveTimer = 0;
@@ -28,7 +32,7 @@ public class Peahat extends ZeldaEnemy {
     }
     
     @Override
-    public void update(ZeldaPlayer player, ZeldaRoom room, List<Projectile> projectiles) {
+    public void update(ZeldaPlayer player, ZeldaRoom room, ProjectileBuffer projectiles) {
         if (invulnerableFrames > 0) invulnerableFrames--;
         
         angle += 0.15;
@@ -62,19 +66,19 @@ public class Peahat extends ZeldaEnemy {
     }
     
     @Override
-    public void render(Graphics2D g2) {
-        int drawY = (int)(y + floatOffset);
+    public void snapshot(RenderState state) {
+        RenderState.Sprite s = addSprite(state);
+        s.y += (float)floatOffset;
         
         if (sprite != null) {
-            g2.drawImage(sprite, (int)x, drawY, 16, 16, null);
+            s.image = sprite;
         } else {
-            g2.setColor(new Color(180, 100, 50));
-            g2.fillOval((int)x, drawY, 16, 16);
+            s.shape = RenderState.SHAPE_OVAL;
+            s.color = BODY_COLOR;
         }
         
         if (invulnerableFrames > 0 || !moving) {
-            g2.setColor(new Color(255, 255, 255, moving ? 100 : 50));
-            g2.fillRect((int)x, drawY, 16, 16);
+            s.overlay = moving ? HIT_OVERLAY : LANDED_OVERLAY;
         }
     }
     
@@ -1,7 +1,6 @@
 package zelda.enemies;
 
 import zelda.*;
-import java.util.List;
 
 public class Stalfos extends ZeldaEnemy {
     private static final int CHASE_RANGE = 80;
@@ -17,7 +16,7 @@ public class Stalfos extends ZeldaEnemy {
     }
     
     @Override
-    public void update(ZeldaPlayer player, ZeldaRoom room, List<Projectile> projectiles) {
+    public void update(ZeldaPlayer player, ZeldaRoom room, ProjectileBuffer projectiles) {
         oldX = x;
         oldY = y;
         
@@ -46,10 +45,7 @@ public class Stalfos extends ZeldaEnemy {
             randomMove(room);
         }
         
-        int centerX = (int)(x + width/2);
-        int centerY = (int)(y + height/2);
-        
-        if (!room.isWalkable(centerX, centerY)) {
+        if (hitWall(room)) {
             x = oldX;
             y = oldY;
         }
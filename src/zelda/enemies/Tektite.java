@@ -3,8 +3,7 @@ package zelda.enemies;
 import zelda.ZeldaEnemy;
 import zelda.ZeldaPlayer;
 import zelda.ZeldaRoom;
-import zelda.Projectile;
-import java.util.List;
+import zelda.ProjectileBuffer;
 
 public class Tektite extends ZeldaEnemy {
     private boolean isBlue;
@@ -27,7 +26,7 @@ public class Tektite extends ZeldaEnemy {
     }
     
     @Override
-    public void update(ZeldaPlayer player, ZeldaRoom room, List<Projectile> projectiles) {
+    public void update(ZeldaPlayer player, ZeldaRoom room, ProjectileBuffer projectiles) {
         super.update(player, room, projectiles);
         
         animTimer++;
@@ -82,4 +81,7 @@ public class Tektite extends ZeldaEnemy {
     public boolean canDamage() {
         return true;
     }
+    
+    @Override
+    public boolean isVariant() { return isBlue; }
 }